@@ -0,0 +1,26 @@
+package jab.spigot.language;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cursor rotates through the keys of a pack, so that a benchmark does not render a single entry
+ * that stays hot in the caches.
+ *
+ * @author Jab
+ */
+@State(Scope.Thread)
+public class Cursor {
+
+  private int index;
+
+  /**
+   * @param length The length of the array to rotate through.
+   * @return Returns the next index.
+   */
+  public int next(int length) {
+    int next = index;
+    index = next + 1 == length ? 0 : next + 1;
+    return next;
+  }
+}
@@ -0,0 +1,127 @@
+package jab.spigot.language;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the lookups underneath rendering: LanguageFile.get, StringPool.roll and
+ * calculateCondition.
+ *
+ * @author Jab
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+  private static final String[] LOCALES = {"en_us", "en_GB", "EN", "fr_fr", "xx_yy"};
+
+  @Benchmark
+  public String languageFileGet(PackState state, Cursor cursor) {
+    return state.languageFile.get(state.keys[cursor.next(state.keys.length)]);
+  }
+
+  @Benchmark
+  public String languageFileGetUpperCase(PoolState poolState, PackState state, Cursor cursor) {
+    return state.languageFile.get(poolState.upperKeys[cursor.next(poolState.upperKeys.length)]);
+  }
+
+  @Benchmark
+  public String languageFileGetEntryKey(PoolState poolState, PackState state, Cursor cursor) {
+    return state.languageFile.get(poolState.entryKeys[cursor.next(poolState.entryKeys.length)]);
+  }
+
+  @Benchmark
+  public Language languageWithLocale(Cursor cursor) {
+    return Language.getLanguageWithLocale(LOCALES[cursor.next(LOCALES.length)]);
+  }
+
+  @Benchmark
+  public String stringPoolRoll(PoolState state) {
+    return state.stringPool.roll();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String stringPoolRollContended(PoolState state) {
+    return state.stringPool.roll();
+  }
+
+  @Benchmark
+  public Boolean calculateCondition(PackState state, Cursor cursor) {
+    String condition = PoolState.CONDITIONS[cursor.next(PoolState.CONDITIONS.length)];
+    return LanguagePackage.calculateCondition(
+        condition, state.languagePackage, Language.English, state.entryFields);
+  }
+
+  @Benchmark
+  public Boolean calculateCompiledCondition(PoolState poolState, PackState state, Cursor cursor) {
+    Condition condition = poolState.conditions[cursor.next(poolState.conditions.length)];
+    PackSnapshot snapshot = state.languagePackage.getSnapshot();
+    return condition.calculate(snapshot, Language.English, state.fieldSet);
+  }
+
+  /**
+   * PoolState holds a StringPool of each PoolType, upper-case copies of the pack keys and the
+   * compiled conditions.
+   */
+  @State(Scope.Benchmark)
+  public static class PoolState {
+
+    static final String[] CONDITIONS = {
+      "field_1",
+      "!field_3",
+      "field_0 == value_0",
+      "field_2 != value_0",
+      "field_1 && !field_3",
+      "field_1 || field_3",
+      "missing"
+    };
+
+    @Param({"RANDOM", "SEQUENTIAL", "SEQUENTIAL_REVERSED"})
+    public String type;
+
+    @Param({"8"})
+    public int size;
+
+    public StringPool stringPool;
+    public String[] upperKeys;
+    public EntryKey[] entryKeys;
+    public Condition[] conditions;
+
+    @Setup(Level.Trial)
+    public void setup(PackState state) {
+      stringPool = new StringPool(PoolType.getPoolType(type));
+      for (int index = 0; index < size; index++) {
+        stringPool.add("&7Pool entry {{field_0}} #" + index);
+      }
+      upperKeys = new String[state.keys.length];
+      for (int index = 0; index < upperKeys.length; index++) {
+        upperKeys[index] = state.keys[index].toUpperCase();
+      }
+      entryKeys = new EntryKey[state.keys.length];
+      for (int index = 0; index < entryKeys.length; index++) {
+        entryKeys[index] = EntryKey.of(state.keys[index]);
+      }
+      conditions = new Condition[CONDITIONS.length];
+      for (int index = 0; index < conditions.length; index++) {
+        conditions[index] = Condition.compile(CONDITIONS[index]);
+      }
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package jab.spigot.language;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * PackState generates and loads a SyntheticPack once per trial, shared by every benchmark thread.
+ *
+ * @author Jab
+ */
+@State(Scope.Benchmark)
+public class PackState {
+
+  /** The amount of entries in the pack. */
+  @Param({"100", "1000"})
+  public int entries;
+
+  /** The nesting depth of the entries. */
+  @Param({"0", "3"})
+  public int depth;
+
+  /** The amount of EntryFields referenced by the entries. */
+  @Param({"4", "16"})
+  public int fields;
+
+  /** The chance, from 0 to 1, of a section being a '{{if:...}}' block. */
+  @Param({"0.0", "0.5"})
+  public double conditionalDensity;
+
+  public LanguagePackage languagePackage;
+  public LanguagePackage cachedPackage;
+  public LanguageFile languageFile;
+  public EntryField[] entryFields;
+  public FieldSet fieldSet;
+  public String[] keys;
+  public String[] clickableKeys;
+  public String[] raws;
+
+  private File directory;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    directory = Files.createTempDirectory("lp-bench").toFile();
+    SyntheticPack pack = new SyntheticPack(entries, depth, fields, conditionalDensity, 0.05, 1L);
+    File file = pack.write(directory);
+    languagePackage = new LanguagePackage(directory, SyntheticPack.NAME);
+    languagePackage.load();
+    cachedPackage = new LanguagePackage(directory, SyntheticPack.NAME);
+    cachedPackage.load();
+    cachedPackage.enableRenderCache(entries);
+    languageFile = new LanguageFile(file, Language.English);
+    languageFile.load();
+    entryFields = pack.createFields();
+    fieldSet = FieldSet.of(entryFields);
+    keys = pack.getKeys();
+    clickableKeys = pack.getClickableKeys();
+    raws = new String[keys.length];
+    for (int index = 0; index < keys.length; index++) {
+      raws[index] = languagePackage.getString(keys[index], Language.English);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    directory.delete();
+  }
+}
@@ -0,0 +1,157 @@
+package jab.spigot.language;
+
+import net.md_5.bungee.api.chat.TextComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for every public getString, getTexts and getStringList overload of LanguagePackage,
+ * for rendering into an Appendable or per line, and for processString.
+ *
+ * @author Jab
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+  /** Default entries of English LanguageFiles, which are static. */
+  private static final String[] STATIC_KEYS = {"red", "gold", "bold", "reset"};
+
+  @Benchmark
+  public String getString(PackState state, Cursor cursor) {
+    return state.languagePackage.getString(state.keys[cursor.next(state.keys.length)]);
+  }
+
+  @Benchmark
+  public String getStringWithLanguage(PackState state, Cursor cursor) {
+    String key = state.keys[cursor.next(state.keys.length)];
+    return state.languagePackage.getString(key, Language.English);
+  }
+
+  @Benchmark
+  public String getStringWithFields(PackState state, Cursor cursor) {
+    String key = state.keys[cursor.next(state.keys.length)];
+    return state.languagePackage.getString(key, state.entryFields);
+  }
+
+  @Benchmark
+  public String getStringWithLanguageAndFields(PackState state, Cursor cursor) {
+    String key = state.keys[cursor.next(state.keys.length)];
+    return state.languagePackage.getString(key, Language.English, state.entryFields);
+  }
+
+  @Benchmark
+  public String getStringWithFieldSet(PackState state, Cursor cursor) {
+    String key = state.keys[cursor.next(state.keys.length)];
+    return state.languagePackage.getString(key, Language.English, state.fieldSet);
+  }
+
+  @Benchmark
+  public String getStringWithLanguageAndFieldsCached(PackState state, Cursor cursor) {
+    String key = state.keys[cursor.next(state.keys.length)];
+    return state.cachedPackage.getString(key, Language.English, state.entryFields);
+  }
+
+  @Benchmark
+  public String getStaticString(PackState state, Cursor cursor) {
+    return state.languagePackage.getString(STATIC_KEYS[cursor.next(STATIC_KEYS.length)]);
+  }
+
+  @Benchmark
+  public String getAnyString(PackState state, Cursor cursor) {
+    return state.languagePackage.getAnyString(state.keys[cursor.next(state.keys.length)]);
+  }
+
+  @Benchmark
+  public List<String> getStringList(PackState state, Cursor cursor) {
+    return state.languagePackage.getStringList(state.keys[cursor.next(state.keys.length)]);
+  }
+
+  @Benchmark
+  public List<String> getStringListWithLanguage(PackState state, Cursor cursor) {
+    String key = state.keys[cursor.next(state.keys.length)];
+    return state.languagePackage.getStringList(key, Language.English);
+  }
+
+  @Benchmark
+  public List<String> getStringListWithFields(PackState state, Cursor cursor) {
+    String key = state.keys[cursor.next(state.keys.length)];
+    return state.languagePackage.getStringList(key, state.entryFields);
+  }
+
+  @Benchmark
+  public List<String> getStringListWithLanguageAndFields(PackState state, Cursor cursor) {
+    String key = state.keys[cursor.next(state.keys.length)];
+    return state.languagePackage.getStringList(key, Language.English, state.entryFields);
+  }
+
+  @Benchmark
+  public boolean forEachLineWithLanguageAndFields(
+      PackState state, Cursor cursor, Blackhole blackhole) {
+    String key = state.keys[cursor.next(state.keys.length)];
+    return state.languagePackage.forEachLine(
+        blackhole::consume, key, Language.English, state.entryFields);
+  }
+
+  @Benchmark
+  public int appendStringWithLanguageAndFields(
+      PackState state, Cursor cursor, BuilderState builderState) throws IOException {
+    String key = state.keys[cursor.next(state.keys.length)];
+    StringBuilder builder = builderState.builder;
+    builder.setLength(0);
+    state.languagePackage.appendString(builder, key, Language.English, state.entryFields);
+    return builder.length();
+  }
+
+  @Benchmark
+  public List<String> getAnyStringList(PackState state, Cursor cursor) {
+    return state.languagePackage.getAnyStringList(state.keys[cursor.next(state.keys.length)]);
+  }
+
+  @Benchmark
+  public TextComponent[] getTexts(PackState state, Cursor cursor) {
+    String key = state.keys[cursor.next(state.keys.length)];
+    return state.languagePackage.getTexts(key, Language.English, state.entryFields);
+  }
+
+  @Benchmark
+  public TextComponent[] getTextsClickable(PackState state, Cursor cursor) {
+    String key = state.clickableKeys[cursor.next(state.clickableKeys.length)];
+    return state.languagePackage.getTexts(key, Language.English, state.entryFields);
+  }
+
+  @Benchmark
+  public String processString(PackState state, Cursor cursor) {
+    String raw = state.raws[cursor.next(state.raws.length)];
+    return LanguagePackage.processString(
+        raw, state.languagePackage, Language.English, state.entryFields);
+  }
+
+  @Benchmark
+  public String processStringWithoutPackage(PackState state, Cursor cursor) {
+    String raw = state.raws[cursor.next(state.raws.length)];
+    return LanguagePackage.processString(raw, state.entryFields);
+  }
+
+  /** BuilderState holds a StringBuilder for each benchmark thread, re-used by every render. */
+  @State(Scope.Thread)
+  public static class BuilderState {
+
+    public final StringBuilder builder = new StringBuilder(256);
+  }
+}
@@ -0,0 +1,178 @@
+package jab.spigot.language;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * SyntheticPack generates a LanguagePackage of a configurable size and shape for the benchmarks.
+ *
+ * <p>Entries are spread across levels, from 0 to the nesting depth. An entry references fields,
+ * and entries of the next level, so that rendering a level 0 entry resolves the full depth. A
+ * portion of the entries contain '{{if:...}}' blocks, and a portion of the entries are pools.
+ *
+ * @author Jab
+ */
+public class SyntheticPack {
+
+  /** The name of the generated LanguagePackage. */
+  public static final String NAME = "bench";
+
+  private final int entries;
+  private final int depth;
+  private final int fields;
+  private final double conditionalDensity;
+  private final double poolDensity;
+  private final long seed;
+
+  private String[] keys;
+  private String[] clickableKeys;
+
+  /**
+   * Main constructor.
+   *
+   * @param entries The amount of entries to generate.
+   * @param depth The nesting depth of the entries.
+   * @param fields The amount of EntryFields referenced by the entries.
+   * @param conditionalDensity The chance, from 0 to 1, of a section being a '{{if:...}}' block.
+   * @param poolDensity The chance, from 0 to 1, of an entry being a pool.
+   * @param seed The seed for the generator.
+   */
+  public SyntheticPack(
+      int entries,
+      int depth,
+      int fields,
+      double conditionalDensity,
+      double poolDensity,
+      long seed) {
+    this.entries = Math.max(entries, depth + 1);
+    this.depth = depth;
+    this.fields = Math.max(fields, 2);
+    this.conditionalDensity = conditionalDensity;
+    this.poolDensity = poolDensity;
+    this.seed = seed;
+  }
+
+  /**
+   * Writes the YAML file for the pack.
+   *
+   * @param directory The directory to write the file to.
+   * @return Returns the file handle of the written file.
+   * @throws IOException Thrown if the file fails to save.
+   */
+  @NotNull
+  public File write(@NotNull File directory) throws IOException {
+    Random random = new Random(seed);
+    YamlConfiguration config = new YamlConfiguration();
+    int perLevel = entries / (depth + 1);
+    List<String> listKeys = new ArrayList<>();
+    for (int level = 0; level <= depth; level++) {
+      for (int index = 0; index < perLevel; index++) {
+        String key = key(level, index);
+        if (level == 0) listKeys.add(key);
+        if (random.nextDouble() < poolDensity) {
+          List<String> pool = new ArrayList<>();
+          for (int variant = 0; variant < 3; variant++) {
+            pool.add(createText(random, level, perLevel));
+          }
+          config.set(key + ".type", "SEQUENTIAL");
+          config.set(key + ".pool", pool);
+        } else {
+          config.set(key, createText(random, level, perLevel));
+        }
+      }
+    }
+    int clickables = Math.max(1, perLevel / 10);
+    clickableKeys = new String[clickables];
+    for (int index = 0; index < clickables; index++) {
+      String key = "clickable_" + index;
+      clickableKeys[index] = key;
+      config.set(
+          key,
+          "&7Click [@command:/help {{field_0}}:&a&lhere] to open page {{field_1}}."
+              + " [@command:/menu:&e{{" + key(0, index % perLevel) + "}}]");
+    }
+    keys = listKeys.toArray(new String[0]);
+    File file = new File(directory, NAME + "_" + Language.English.getAbbreviation() + ".yml");
+    config.save(file);
+    return file;
+  }
+
+  /**
+   * Writes the YAML file for the pack, then loads it.
+   *
+   * @param directory The directory to write the file to.
+   * @return Returns the loaded LanguagePackage.
+   * @throws IOException Thrown if the file fails to save.
+   */
+  @NotNull
+  public LanguagePackage create(@NotNull File directory) throws IOException {
+    write(directory);
+    LanguagePackage languagePackage = new LanguagePackage(directory, NAME);
+    languagePackage.load();
+    return languagePackage;
+  }
+
+  /** @return Returns the EntryFields referenced by the generated entries. */
+  @NotNull
+  public EntryField[] createFields() {
+    EntryField[] array = new EntryField[fields];
+    for (int index = 0; index < fields; index++) {
+      // Odd fields are flags, tested by the '{{if:...}}' blocks.
+      Object value = index % 2 == 0 ? "value_" + index : (index % 4 == 1);
+      array[index] = new EntryField("field_" + index, value);
+    }
+    return array;
+  }
+
+  /** @return Returns the keys of the level 0 entries. */
+  public String[] getKeys() {
+    return this.keys;
+  }
+
+  /** @return Returns the keys of the entries containing '[@command:...]' sections. */
+  public String[] getClickableKeys() {
+    return this.clickableKeys;
+  }
+
+  private String createText(Random random, int level, int perLevel) {
+    StringBuilder builder = new StringBuilder("&e");
+    int sections = 2 + random.nextInt(4);
+    for (int section = 0; section < sections; section++) {
+      builder.append("Lorem ipsum dolor ").append(section).append(' ');
+      if (random.nextDouble() < conditionalDensity) {
+        int flag = 1 + 2 * random.nextInt(fields / 2);
+        if (random.nextBoolean()) {
+          builder.append("{{if:field_").append(flag).append(":gold:gray}}");
+        } else {
+          int value = 2 * random.nextInt((fields + 1) / 2);
+          builder
+              .append("{{if:field_")
+              .append(value)
+              .append(" == value_")
+              .append(value)
+              .append(" && !field_")
+              .append(flag)
+              .append(":field_")
+              .append(value)
+              .append("}}");
+        }
+      } else {
+        builder.append("{{field_").append(random.nextInt(fields)).append("}}");
+      }
+    }
+    if (level < depth) {
+      builder.append(" {{").append(key(level + 1, random.nextInt(perLevel))).append("}}");
+    }
+    return builder.toString();
+  }
+
+  private static String key(int level, int index) {
+    return "entry_" + level + "_" + index;
+  }
+}
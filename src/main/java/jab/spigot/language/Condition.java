@@ -0,0 +1,259 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.regex.Pattern;
+
+/**
+ * Condition is the compiled form of the condition in an '{{if:condition:...}}' block. The
+ * condition String is parsed once into a tree of predicates, with the literal operands trimmed
+ * and lower-cased ahead of time, so that calculating the condition does not allocate.
+ *
+ * <h3>Supported operators:</h3>
+ *
+ * <ul>
+ *   <li><b>a && b</b> : Passes if all operands pass.
+ *   <li><b>a || b</b> : Passes if any operand passes.
+ *   <li><b>key == value</b> : Passes if the field's value equals the value. (Case-insensitive)
+ *   <li><b>key != value</b> : Passes if the field's value does not equal the value.
+ *   <li><b>!key</b> : Passes if the field or entry is false.
+ *   <li><b>key</b> : Passes if the field or entry is true.
+ * </ul>
+ *
+ * <p>NOTE: '&&' is split before '||', so 'a || b && c' is calculated as '(a || b) && c'.
+ *
+ * @author Jab
+ */
+abstract class Condition {
+
+  /**
+   * @param snapshot The snapshot of the language-package instance. (Can be null)
+   * @param language The language to process the result.
+   * @param fields Additional field(s) above the language-package supplied upstream.
+   * @return Returns true if the condition passes the test. Returns false if the condition does not
+   *     pass the test. Returns null if no variable can be located to test.
+   */
+  Boolean calculate(PackSnapshot snapshot, Language language, @NotNull FieldSet fields) {
+    Resolver resolver = snapshot != null ? new Resolver(snapshot, language, fields) : null;
+    return calculate(resolver, fields);
+  }
+
+  /**
+   * @param resolver The Resolver to look up entries of the language-package with. (Can be null)
+   * @param fields Additional field(s) above the language-package supplied upstream.
+   * @return Returns true if the condition passes the test. Returns false if the condition does not
+   *     pass the test. Returns null if no variable can be located to test.
+   */
+  abstract Boolean calculate(Resolver resolver, FieldSet fields);
+
+  /**
+   * Collects the keys that calculating the condition can look up in the LanguagePackage.
+   *
+   * @param keys The Collection to add the keys to.
+   */
+  void collectKeys(@NotNull Collection<EntryKey> keys) {}
+
+  /**
+   * Compiles a condition String.
+   *
+   * @param condition The condition to compile.
+   * @return Returns the compiled condition.
+   */
+  @NotNull
+  static Condition compile(@NotNull String condition) {
+    condition = condition.trim();
+    if (condition.contains("&&")) {
+      return new And(compileAll(condition.split("&&")));
+    } else if (condition.contains("||")) {
+      return new Or(compileAll(condition.split(Pattern.quote("||"))));
+    } else if (condition.contains("==")) {
+      String[] split = condition.split("==");
+      return new Equals(split[0].trim(), split.length > 1 ? split[1] : "", false);
+    } else if (condition.contains("!=")) {
+      String[] split = condition.split("!=");
+      return new Equals(split[0].trim(), split.length > 1 ? split[1] : "", true);
+    }
+    boolean invert = condition.startsWith("!");
+    if (invert) condition = condition.substring(1).trim();
+    return new Variable(condition, invert);
+  }
+
+  private static Condition[] compileAll(String[] split) {
+    Condition[] conditions = new Condition[split.length];
+    for (int index = 0; index < split.length; index++) {
+      conditions[index] = compile(split[index]);
+    }
+    return conditions;
+  }
+
+  /**
+   * @param string The string to test.
+   * @return Returns true unless the string is 'false' or '0'. (Case-insensitive)
+   */
+  private static boolean isTrue(String string) {
+    return string.equalsIgnoreCase("true")
+        || (!string.equalsIgnoreCase("false") && !string.equalsIgnoreCase("0"));
+  }
+
+  /** And passes if all operands pass. An operand that cannot be calculated fails. */
+  private static final class And extends Condition {
+
+    private final Condition[] conditions;
+
+    And(Condition[] conditions) {
+      this.conditions = conditions;
+    }
+
+    @Override
+    Boolean calculate(Resolver resolver, FieldSet fields) {
+      for (Condition condition : conditions) {
+        Boolean result = condition.calculate(resolver, fields);
+        // All of them have to be true to return true.
+        if (result == null || !result) return false;
+      }
+      return true;
+    }
+
+    @Override
+    void collectKeys(@NotNull Collection<EntryKey> keys) {
+      for (Condition condition : conditions) condition.collectKeys(keys);
+    }
+  }
+
+  /**
+   * Or passes if any operand passes. If no operand can be calculated, the result is null as well.
+   */
+  private static final class Or extends Condition {
+
+    private final Condition[] conditions;
+
+    Or(Condition[] conditions) {
+      this.conditions = conditions;
+    }
+
+    @Override
+    Boolean calculate(Resolver resolver, FieldSet fields) {
+      Boolean returned = null;
+      for (Condition condition : conditions) {
+        Boolean result = condition.calculate(resolver, fields);
+        // Only one of them has to be true to return true.
+        if (result != null) {
+          if (result) return true;
+          returned = false;
+        }
+      }
+      return returned;
+    }
+
+    @Override
+    void collectKeys(@NotNull Collection<EntryKey> keys) {
+      for (Condition condition : conditions) condition.collectKeys(keys);
+    }
+  }
+
+  /** Equals compares a field's value to a literal value, ignoring case and outer whitespace. */
+  private static final class Equals extends Condition {
+
+    private final String key;
+    private final String value;
+    private final boolean invert;
+
+    /**
+     * @param key The key of the field to compare.
+     * @param value The literal value to compare to.
+     * @param invert Set to true to pass if the values are not equal.
+     */
+    Equals(String key, String value, boolean invert) {
+      this.key = key;
+      this.value = toLowerCase(value.trim());
+      this.invert = invert;
+    }
+
+    @Override
+    Boolean calculate(Resolver resolver, FieldSet fields) {
+      EntryField field = fields.get(key);
+      if (field == null) return null;
+      Object o = field.getValue();
+      boolean result = o != null && equalsTrimmed(o.toString());
+      return result != invert;
+    }
+
+    /**
+     * @param string The string to compare.
+     * @return Returns true if the string, without outer whitespace, equals the value ignoring case.
+     */
+    private boolean equalsTrimmed(String string) {
+      int start = 0;
+      int end = string.length();
+      while (start < end && string.charAt(start) <= ' ') start++;
+      while (end > start && string.charAt(end - 1) <= ' ') end--;
+      int length = end - start;
+      return length == value.length() && string.regionMatches(true, start, value, 0, length);
+    }
+
+    /**
+     * Lower-cases the string one character at a time, so that the length is always preserved.
+     *
+     * @param string The string to lower-case.
+     * @return Returns the lower-cased string.
+     */
+    private static String toLowerCase(String string) {
+      char[] chars = string.toCharArray();
+      for (int index = 0; index < chars.length; index++) {
+        chars[index] = Character.toLowerCase(chars[index]);
+      }
+      return new String(chars);
+    }
+  }
+
+  /**
+   * Variable tests the truth of a field, or of an entry in the LanguagePackage if no field is
+   * defined.
+   */
+  private static final class Variable extends Condition {
+
+    private final EntryKey key;
+    private final boolean invert;
+
+    /**
+     * @param key The key of the field or entry to test.
+     * @param invert Set to true to pass if the variable is false.
+     */
+    Variable(String key, boolean invert) {
+      this.key = EntryKey.of(key);
+      this.invert = invert;
+    }
+
+    @Override
+    Boolean calculate(Resolver resolver, FieldSet fields) {
+      Boolean result = null;
+      EntryField field = fields.get(key.getKey());
+      if (field != null) {
+        Object o = field.getValue();
+        if (o == null) {
+          result = false;
+        } else if (o instanceof Boolean) {
+          result = (Boolean) o;
+        } else if (o instanceof Number) {
+          result = ((Number) o).intValue() > 0;
+        } else {
+          result = isTrue(o.toString());
+        }
+      } else if (resolver != null) {
+        String test = resolver.getString(key);
+        if (test != null) {
+          result = isTrue(test);
+        }
+      }
+      // Invert the variable if the flag is set.
+      if (result != null && invert) result = !result;
+      return result;
+    }
+
+    @Override
+    void collectKeys(@NotNull Collection<EntryKey> keys) {
+      keys.add(key);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DirectoryIndex is the index of the language files in the directory of a LanguagePackage, by the
+ * name of their package and their Language. The directory is listed, and the name of each file is
+ * parsed, once each time the LanguagePackage is loaded or reloaded. The index is then shared by the
+ * package and every package appended to it.
+ *
+ * <p>Language files are named "{{name}}_{{language_abbreviation}}.yml", case-insensitively. The
+ * name of a package can contain '_', as can an abbreviation, such as 'pt_br'. Files that are not
+ * named this way, or that note an abbreviation that is not registered, are not indexed.
+ *
+ * @author Jab
+ */
+final class DirectoryIndex {
+
+  /** The index of a directory with no language files. */
+  static final DirectoryIndex EMPTY = new DirectoryIndex(new File[0]);
+
+  /** The extension of language files. */
+  private static final String EXTENSION = ".yml";
+
+  /** The language files of each package, by the lower-cased name of the package, then Language. */
+  private final Map<String, Map<Language, File>> mapPackages;
+
+  /** The lower-cased names, without the extension, of the '.yml' files that are not indexed. */
+  private final List<String> unindexed;
+
+  /**
+   * (Private Constructor)
+   *
+   * @param files The files in the directory, sorted by name.
+   */
+  private DirectoryIndex(File[] files) {
+    this.mapPackages = new HashMap<>();
+    List<String> unindexed = new ArrayList<>();
+    for (File file : files) {
+      String name = file.getName().toLowerCase();
+      if (!name.endsWith(EXTENSION)) continue;
+      name = name.substring(0, name.length() - EXTENSION.length());
+      if (!add(name, file)) unindexed.add(name);
+    }
+    this.unindexed = unindexed.isEmpty() ? Collections.<String>emptyList() : unindexed;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Indexes a file under the shortest package name that leaves a registered abbreviation. If
+   * two files have the same package and Language, the last by name is indexed, the same as when
+   * each file was loaded in turn.
+   *
+   * @param name The lower-cased name of the file, without the extension.
+   * @param file The file to index.
+   * @return Returns true if the file is indexed.
+   */
+  private boolean add(String name, File file) {
+    int index = name.indexOf('_', 1);
+    while (index != -1) {
+      Language language = Language.getLanguageWithAbbreviation(name.substring(index + 1));
+      if (language != null) {
+        String packageName = name.substring(0, index);
+        mapPackages.computeIfAbsent(packageName, key -> new HashMap<>()).put(language, file);
+        return true;
+      }
+      index = name.indexOf('_', index + 1);
+    }
+    return false;
+  }
+
+  /**
+   * @param packageName The name of the package. (Case-insensitive)
+   * @return Returns the language files of the package, by Language.
+   */
+  @NotNull
+  Map<Language, File> getFiles(@NotNull String packageName) {
+    Map<Language, File> map = mapPackages.get(packageName.toLowerCase());
+    return map != null ? Collections.unmodifiableMap(map) : Collections.<Language, File>emptyMap();
+  }
+
+  /**
+   * @param packageName The name of the package. (Case-insensitive)
+   * @param language The Language of the file.
+   * @return Returns the language file of the package for the Language. If there is none, null is
+   *     returned.
+   */
+  @Nullable
+  File getFile(@NotNull String packageName, @NotNull Language language) {
+    Map<Language, File> map = mapPackages.get(packageName.toLowerCase());
+    return map != null ? map.get(language) : null;
+  }
+
+  /**
+   * Warns of the '.yml' files that are named after a package, but are not indexed, as they are
+   * missing an abbreviation or note one that is not registered.
+   *
+   * @param packageName The name of the package. (Case-insensitive)
+   */
+  void warnUnindexed(@NotNull String packageName) {
+    String name = packageName.toLowerCase();
+    for (String fileName : unindexed) {
+      if (fileName.equals(name) || fileName.startsWith(name + "_")) {
+        System.out.println(
+            "WARNING: Language file '"
+                + fileName
+                + EXTENSION
+                + "' is not named '"
+                + name
+                + "_{{language_abbreviation}}"
+                + EXTENSION
+                + "' with a registered abbreviation. Skipping.");
+      }
+    }
+  }
+
+  /**
+   * Indexes the language files in a directory.
+   *
+   * @param directory The directory to index.
+   * @return Returns the index of the directory. If the directory cannot be listed, null is
+   *     returned.
+   */
+  @Nullable
+  static DirectoryIndex of(@NotNull File directory) {
+    File[] files = directory.listFiles();
+    if (files == null) return null;
+    Arrays.sort(files);
+    return new DirectoryIndex(files);
+  }
+
+  /**
+   * @param fileName The name of a file.
+   * @param packageName The name of the package. (Case-insensitive)
+   * @return Returns the Language of the file if it is a language file of the package. If it is
+   *     not, null is returned.
+   */
+  @Nullable
+  static Language getLanguage(@NotNull String fileName, @NotNull String packageName) {
+    String name = fileName.toLowerCase();
+    String prefix = packageName.toLowerCase() + "_";
+    if (!name.endsWith(EXTENSION) || !name.startsWith(prefix)) return null;
+    String abbreviation = name.substring(prefix.length(), name.length() - EXTENSION.length());
+    return Language.getLanguageWithAbbreviation(abbreviation);
+  }
+}
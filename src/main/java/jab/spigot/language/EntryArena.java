@@ -0,0 +1,331 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * EntryArena is a compact, read-only Map of the entries of a LanguageFile. The ids and raw Strings
+ * of all entries are held one after another in a single char Array, and are found through an
+ * open-addressed table of int indices, in place of a HashMap Node, a Template and its Strings for
+ * each entry.
+ *
+ * <p>An entry is compiled into its Template the first time it is looked up, and kept from then on,
+ * so only the entries that are used hold a Template. Entries read by iterating the arena, such as
+ * when the EntryGraph is built, are compiled without being kept. StringPools are kept as they are,
+ * as they hold the state of their rolls, and so are shared entries, such as the default entries
+ * and entries shared between LanguageFiles as they are read, as compiling them again would only
+ * hold a copy of a Template that is held already.
+ *
+ * <p>The arena is never modified. A LanguageFile that is changed stores its entries in a new
+ * arena, copying the ids, raw Strings and compiled entries of the current arena as they are.
+ *
+ * @author Jab
+ */
+final class EntryArena extends AbstractMap<String, LanguageFile.Entry> {
+
+  /** The ids and raw Strings of the entries, one after another. */
+  private final char[] chars;
+
+  /**
+   * Three ints for each entry, by index: the offset of its id in the chars, the length of its id,
+   * and the length of its raw String, which follows its id. An entry that is kept as it is has no
+   * raw String, and its length is -1.
+   */
+  private final int[] offsets;
+
+  /** The hash of the id of each entry, by index. */
+  private final int[] hashes;
+
+  /** The index of each entry plus 1, by the hash of its id, with linear probing. 0 if empty. */
+  private final int[] table;
+
+  private final int mask;
+
+  /**
+   * The entries compiled by lookups, by index. Entries kept as they are are set from the start.
+   * Entries are immutable, so an entry compiled by two lookups at once is only compiled twice, and
+   * either result can be kept.
+   */
+  private final LanguageFile.Entry[] entries;
+
+  /**
+   * Main constructor.
+   *
+   * @param base The entries to store, by their lower-cased ids.
+   * @param changes The entries to store over the base entries, by their lower-cased ids. Entries
+   *     with the id of a base entry replace it.
+   */
+  EntryArena(
+      @NotNull Map<String, LanguageFile.Entry> base,
+      @NotNull Map<String, LanguageFile.Entry> changes) {
+    EntryArena arena = base instanceof EntryArena ? (EntryArena) base : null;
+    // The indices of the base entries that are replaced, when the base is an arena.
+    boolean[] replaced = null;
+    if (arena != null && !changes.isEmpty()) {
+      replaced = new boolean[arena.size()];
+      for (String id : changes.keySet()) {
+        int index = arena.indexOf(id);
+        if (index != -1) replaced[index] = true;
+      }
+    }
+    int size = 0;
+    int length = 0;
+    if (arena != null) {
+      for (int index = 0; index < arena.size(); index++) {
+        if (replaced != null && replaced[index]) continue;
+        size++;
+        length += arena.getLength(index);
+      }
+    } else {
+      for (Map.Entry<String, LanguageFile.Entry> entry : base.entrySet()) {
+        if (changes.containsKey(entry.getKey())) continue;
+        size++;
+        length += getLength(entry.getKey(), entry.getValue());
+      }
+    }
+    for (Map.Entry<String, LanguageFile.Entry> entry : changes.entrySet()) {
+      size++;
+      length += getLength(entry.getKey(), entry.getValue());
+    }
+    this.chars = new char[length];
+    this.offsets = new int[size * 3];
+    this.hashes = new int[size];
+    this.entries = new LanguageFile.Entry[size];
+    this.table = new int[Integer.highestOneBit(Math.max(size * 2 - 1, 1)) << 1];
+    this.mask = table.length - 1;
+    int index = 0;
+    int offset = 0;
+    if (arena != null) {
+      for (int baseIndex = 0; baseIndex < arena.size(); baseIndex++) {
+        if (replaced != null && replaced[baseIndex]) continue;
+        offset = copy(arena, baseIndex, index++, offset);
+      }
+    } else {
+      for (Map.Entry<String, LanguageFile.Entry> entry : base.entrySet()) {
+        if (changes.containsKey(entry.getKey())) continue;
+        offset = put(entry.getKey(), entry.getValue(), index++, offset);
+      }
+    }
+    for (Map.Entry<String, LanguageFile.Entry> entry : changes.entrySet()) {
+      offset = put(entry.getKey(), entry.getValue(), index++, offset);
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Stores an entry, as its raw String unless it is kept as it is.
+   *
+   * @param id The lower-cased id of the entry.
+   * @param entry The entry to store.
+   * @param index The index to store the entry at.
+   * @param offset The offset to store the id and raw String of the entry at.
+   * @return Returns the offset that follows the entry.
+   */
+  private int put(String id, LanguageFile.Entry entry, int index, int offset) {
+    id.getChars(0, id.length(), chars, offset);
+    offsets[index * 3] = offset;
+    offsets[index * 3 + 1] = id.length();
+    offset += id.length();
+    if (isKept(entry)) {
+      offsets[index * 3 + 2] = -1;
+      entries[index] = entry;
+    } else {
+      String raw = entry.getTemplate().getRaw();
+      raw.getChars(0, raw.length(), chars, offset);
+      offsets[index * 3 + 2] = raw.length();
+      offset += raw.length();
+    }
+    link(hash(id), index);
+    return offset;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Stores an entry of another arena, without compiling it.
+   *
+   * @param arena The arena to copy the entry from.
+   * @param source The index of the entry in the other arena.
+   * @param index The index to store the entry at.
+   * @param offset The offset to store the id and raw String of the entry at.
+   * @return Returns the offset that follows the entry.
+   */
+  private int copy(EntryArena arena, int source, int index, int offset) {
+    int length = arena.getLength(source);
+    System.arraycopy(arena.chars, arena.offsets[source * 3], chars, offset, length);
+    offsets[index * 3] = offset;
+    offsets[index * 3 + 1] = arena.offsets[source * 3 + 1];
+    offsets[index * 3 + 2] = arena.offsets[source * 3 + 2];
+    entries[index] = arena.entries[source];
+    link(arena.hashes[source], index);
+    return offset + length;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param hash The hash of the id of the entry.
+   * @param index The index of the entry.
+   */
+  private void link(int hash, int index) {
+    hashes[index] = hash;
+    int slot = hash & mask;
+    while (table[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = index + 1;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param index The index of the entry.
+   * @return Returns the amount of chars that the id and raw String of the entry take.
+   */
+  private int getLength(int index) {
+    return offsets[index * 3 + 1] + Math.max(offsets[index * 3 + 2], 0);
+  }
+
+  @Override
+  public LanguageFile.Entry get(Object key) {
+    if (!(key instanceof String)) return null;
+    int index = indexOf((String) key);
+    if (index == -1) return null;
+    LanguageFile.Entry entry = entries[index];
+    if (entry == null) {
+      entry = compile(index);
+      entries[index] = entry;
+    }
+    return entry;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof String && indexOf((String) key) != -1;
+  }
+
+  @Override
+  public int size() {
+    return hashes.length;
+  }
+
+  @NotNull
+  @Override
+  public Set<Map.Entry<String, LanguageFile.Entry>> entrySet() {
+    return new AbstractSet<Map.Entry<String, LanguageFile.Entry>>() {
+      @NotNull
+      @Override
+      public Iterator<Map.Entry<String, LanguageFile.Entry>> iterator() {
+        return new Iterator<Map.Entry<String, LanguageFile.Entry>>() {
+          private int index = 0;
+
+          @Override
+          public boolean hasNext() {
+            return index < hashes.length;
+          }
+
+          @Override
+          public Map.Entry<String, LanguageFile.Entry> next() {
+            if (index >= hashes.length) throw new NoSuchElementException();
+            LanguageFile.Entry entry = entries[index];
+            String id = new String(chars, offsets[index * 3], offsets[index * 3 + 1]);
+            if (entry == null) entry = compile(index);
+            index++;
+            return new SimpleImmutableEntry<>(id, entry);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return hashes.length;
+      }
+    };
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param id The lower-cased id of the entry.
+   * @return Returns the index of the entry. If no entry has the id, -1 is returned.
+   */
+  private int indexOf(String id) {
+    int hash = hash(id);
+    int slot = hash & mask;
+    int value;
+    while ((value = table[slot]) != 0) {
+      int index = value - 1;
+      if (hashes[index] == hash && matches(index, id)) return index;
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param index The index of the entry.
+   * @param id The id to compare.
+   * @return Returns true if the entry has the id.
+   */
+  private boolean matches(int index, String id) {
+    int length = id.length();
+    if (offsets[index * 3 + 1] != length) return false;
+    int offset = offsets[index * 3];
+    for (int position = 0; position < length; position++) {
+      if (chars[offset + position] != id.charAt(position)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param index The index of an entry that is stored as its raw String.
+   * @return Returns the entry, compiled from its raw String.
+   */
+  private LanguageFile.Entry compile(int index) {
+    int offset = offsets[index * 3] + offsets[index * 3 + 1];
+    String raw = new String(chars, offset, offsets[index * 3 + 2]);
+    return LanguageFile.Entry.of(Template.compile(raw));
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param id The lower-cased id of the entry.
+   * @param entry The entry.
+   * @return Returns the amount of chars that the id and raw String of the entry take.
+   */
+  private static int getLength(String id, LanguageFile.Entry entry) {
+    return id.length() + (isKept(entry) ? 0 : entry.getTemplate().getRaw().length());
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param entry The entry to store.
+   * @return Returns true if the entry is kept as it is: a StringPool, or a shared entry.
+   */
+  private static boolean isKept(LanguageFile.Entry entry) {
+    return entry.getTemplate() == null || entry.isShared();
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param id The id to hash.
+   * @return Returns the hash of the id, with the high bits spread into the low bits.
+   */
+  private static int hash(String id) {
+    int hash = id.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+}
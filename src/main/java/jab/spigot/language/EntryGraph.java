@@ -0,0 +1,463 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * EntryGraph is the graph of references between the entries of a LanguageFile. An entry references
+ * another entry when it holds a '{{key}}' block, or a condition that tests a key, that names the
+ * other entry.
+ *
+ * <p>The graph is built once for the entries of a LanguageFile, without recursion. It finds the
+ * entries that reference each other in a loop, how deeply each entry nests other entries, and
+ * which entries can reach a StringPool, so that rendering does not have to discover any of this
+ * one lookup at a time.
+ *
+ * <p>Entries that render the same way on every call are folded while the graph is built: an entry
+ * with no conditions, that references only entries that are folded themselves, is rendered once,
+ * with its color codes translated. Entries are folded in the order that they are resolved, so the
+ * entries an entry references are always folded before it. Folding can be turned off for entries
+ * stored compactly, as each folded entry holds its rendered text for as long as the graph is held.
+ *
+ * @author Jab
+ */
+final class EntryGraph {
+
+  /** The entries that the graph was built from, to tell if the graph is still current. */
+  private final Object entries;
+
+  /** The ids of the entries, by index. */
+  private final String[] ids;
+
+  /** The indices of the entries, by id. */
+  private final Map<String, Integer> mapIndices;
+
+  /** The indices of the entries that each entry references, by index. */
+  private final int[][] references;
+
+  /**
+   * The nesting depth of each entry, by index. An entry that references no other entry has a depth
+   * of 1. An entry that can reach a loop has a depth of -1.
+   */
+  private final int[] depths;
+
+  /** The ids of the entries that can reach a StringPool, including the pools themselves. */
+  private final Set<String> setVolatile;
+
+  /**
+   * The ids of the entries in a loop that renders the same way every time, as no StringPool can be
+   * reached from it. Once such an entry renders inside itself, it would never stop.
+   */
+  private final Set<String> setLooping;
+
+  /** The loops, each as the sorted ids of the entries in it. */
+  private final List<List<String>> cycles;
+
+  /** The folded entries, by id. */
+  private final Map<String, Folded> mapFolded;
+
+  /**
+   * Main constructor.
+   *
+   * @param entries The entries that the graph is built from.
+   * @param mapTemplates The Templates of each entry, by id. A StringPool has one Template for each
+   *     of its Strings.
+   * @param pools The ids of the entries that are StringPools.
+   * @param fold Set to true to fold the entries that render the same way on every call.
+   */
+  EntryGraph(
+      @NotNull Object entries,
+      @NotNull Map<String, Template[]> mapTemplates,
+      @NotNull Set<String> pools,
+      boolean fold) {
+    this.entries = entries;
+    int size = mapTemplates.size();
+    this.ids = mapTemplates.keySet().toArray(new String[0]);
+    this.mapIndices = new HashMap<>(size * 2);
+    for (int index = 0; index < size; index++) {
+      mapIndices.put(ids[index], index);
+    }
+    Template[] templates = new Template[size];
+    this.references = new int[size][];
+    for (int index = 0; index < size; index++) {
+      List<EntryKey> keys = new ArrayList<>();
+      for (Template template : mapTemplates.get(ids[index])) {
+        template.collectKeys(keys);
+      }
+      references[index] = toIndices(keys);
+      if (!pools.contains(ids[index])) templates[index] = mapTemplates.get(ids[index])[0];
+    }
+    this.depths = new int[size];
+    Set<String> setVolatile = new HashSet<>();
+    Set<String> setLooping = new HashSet<>();
+    List<List<String>> cycles = new ArrayList<>();
+    Folded[] folded = fold ? new Folded[size] : null;
+    connect(pools, templates, folded, setVolatile, setLooping, cycles);
+    this.setVolatile = setVolatile.isEmpty() ? Collections.<String>emptySet() : setVolatile;
+    this.setLooping = setLooping.isEmpty() ? Collections.<String>emptySet() : setLooping;
+    this.cycles = Collections.unmodifiableList(cycles);
+    this.mapFolded = new HashMap<>(fold ? size * 2 : 0);
+    for (int index = 0; fold && index < size; index++) {
+      if (folded[index] != null) mapFolded.put(ids[index], folded[index]);
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param keys The keys that an entry references.
+   * @return Returns the distinct indices of the keys that are entries.
+   */
+  private int[] toIndices(List<EntryKey> keys) {
+    int[] indices = new int[keys.size()];
+    int count = 0;
+    for (EntryKey key : keys) {
+      Integer index = mapIndices.get(key.getId());
+      if (index != null) indices[count++] = index;
+    }
+    indices = Arrays.copyOf(indices, count);
+    Arrays.sort(indices);
+    // Drop duplicates, as an entry can name the same key more than once.
+    int distinct = 0;
+    for (int index = 0; index < count; index++) {
+      if (distinct == 0 || indices[distinct - 1] != indices[index]) {
+        indices[distinct++] = indices[index];
+      }
+    }
+    return distinct == count ? indices : Arrays.copyOf(indices, distinct);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Finds the strongly-connected components of the graph with Tarjan's algorithm, using an
+   * explicit stack. Each component is complete before any component that references it, so the
+   * depth and pools of a component are resolved from components that are already resolved.
+   *
+   * @param pools The ids of the entries that are StringPools.
+   * @param templates The Template of each entry that is not a StringPool, by index.
+   * @param folded The Array to add the folded entries to, by index. If null, no entry is folded.
+   * @param setVolatile The Set to add the entries that can reach a StringPool to.
+   * @param setLooping The Set to add the entries in a loop that cannot reach a StringPool to.
+   * @param cycles The List to add the loops to.
+   */
+  private void connect(
+      Set<String> pools,
+      Template[] templates,
+      Folded[] folded,
+      Set<String> setVolatile,
+      Set<String> setLooping,
+      List<List<String>> cycles) {
+    int size = ids.length;
+    int[] order = new int[size];
+    int[] low = new int[size];
+    int[] component = new int[size];
+    int[] edge = new int[size];
+    boolean[] reachesPool = new boolean[size];
+    boolean[] onStack = new boolean[size];
+    int[] stack = new int[size];
+    int[] calls = new int[size];
+    Arrays.fill(order, -1);
+    Arrays.fill(component, -1);
+    int counter = 0;
+    int components = 0;
+    int stackSize = 0;
+    for (int root = 0; root < size; root++) {
+      if (order[root] != -1) continue;
+      int callSize = 0;
+      order[root] = low[root] = counter++;
+      stack[stackSize++] = root;
+      onStack[root] = true;
+      calls[callSize++] = root;
+      while (callSize > 0) {
+        int node = calls[callSize - 1];
+        int[] next = references[node];
+        if (edge[node] < next.length) {
+          int target = next[edge[node]++];
+          if (order[target] == -1) {
+            order[target] = low[target] = counter++;
+            stack[stackSize++] = target;
+            onStack[target] = true;
+            calls[callSize++] = target;
+          } else if (onStack[target]) {
+            low[node] = Math.min(low[node], order[target]);
+          }
+          continue;
+        }
+        callSize--;
+        if (callSize > 0) {
+          int parent = calls[callSize - 1];
+          low[parent] = Math.min(low[parent], low[node]);
+        }
+        if (low[node] != order[node]) continue;
+        // The node is the root of a component. Pop its members.
+        int start = stackSize;
+        do {
+          int member = stack[--start];
+          onStack[member] = false;
+          component[member] = components;
+        } while (stack[start] != node);
+        int[] members = Arrays.copyOfRange(stack, start, stackSize);
+        stackSize = start;
+        resolve(members, components++, component, reachesPool, pools);
+        if (folded != null && depths[node] != -1 && !reachesPool[node]) {
+          folded[node] = fold(templates[node], depths[node], folded);
+        }
+        String[] loop = new String[members.length];
+        for (int index = 0; index < members.length; index++) {
+          int member = members[index];
+          loop[index] = ids[member];
+          if (reachesPool[member]) setVolatile.add(ids[member]);
+        }
+        if (isLoop(members)) {
+          Arrays.sort(loop);
+          cycles.add(Collections.unmodifiableList(Arrays.asList(loop)));
+          if (!reachesPool[node]) setLooping.addAll(Arrays.asList(loop));
+        }
+      }
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Resolves the depth of the members of a component, and whether or not they can reach a
+   * StringPool. Every component that the members reference outside of their own is resolved.
+   *
+   * @param members The indices of the members of the component.
+   * @param id The id of the component.
+   * @param component The id of the component of each entry, by index.
+   * @param reachesPool Whether or not each entry can reach a StringPool, by index.
+   * @param pools The ids of the entries that are StringPools.
+   */
+  private void resolve(
+      int[] members, int id, int[] component, boolean[] reachesPool, Set<String> pools) {
+    boolean pool = false;
+    int depth = isLoop(members) ? -1 : 1;
+    for (int member : members) {
+      pool |= pools.contains(ids[member]);
+      for (int target : references[member]) {
+        if (component[target] == id) continue;
+        pool |= reachesPool[target];
+        if (depth != -1) {
+          depth = depths[target] == -1 ? -1 : Math.max(depth, depths[target] + 1);
+        }
+      }
+    }
+    for (int member : members) {
+      reachesPool[member] = pool;
+      depths[member] = depth;
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param template The Template of the entry.
+   * @param depth The nesting depth of the entry.
+   * @param folded The folded entries, by index. Every entry that the entry references is resolved.
+   * @return Returns the folded entry. If the entry has conditions, references an entry that is not
+   *     folded, or is past the bounds of a render, null is returned.
+   */
+  private Folded fold(Template template, int depth, Folded[] folded) {
+    if (depth > Resolver.MAX_DEPTH) return null;
+    List<EntryKey> keys = new ArrayList<>();
+    template.collectKeys(keys);
+    Set<String> setKeys = new LinkedHashSet<>();
+    long renders = 0;
+    for (EntryKey key : keys) {
+      setKeys.add(key.getKey());
+      Integer target = mapIndices.get(key.getId());
+      if (target != null) {
+        Folded next = folded[target];
+        if (next == null) return null;
+        Collections.addAll(setKeys, next.keys);
+        renders += next.renders;
+      }
+      // Every lookup counts as a render, even of a key that is not defined.
+      renders++;
+    }
+    if (renders > Resolver.MAX_RENDERS) return null;
+    String text =
+        template.fold(
+            key -> {
+              Integer target = mapIndices.get(key.getId());
+              return target != null ? folded[target].text : null;
+            });
+    if (text == null) return null;
+    return new Folded(Resolver.translate(text), setKeys.toArray(new String[0]), depth, renders);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param members The indices of the members of a component.
+   * @return Returns true if the members reference each other in a loop.
+   */
+  private boolean isLoop(int[] members) {
+    return members.length > 1 || Arrays.binarySearch(references[members[0]], members[0]) >= 0;
+  }
+
+  /**
+   * @param entries The entries of a LanguageFile.
+   * @return Returns true if the graph was built from the entries.
+   */
+  boolean isOf(Object entries) {
+    return this.entries == entries;
+  }
+
+  /**
+   * @param id The lower-cased id of the entry.
+   * @return Returns true if the entry, or any entry it references, is a StringPool.
+   */
+  boolean isVolatile(@NotNull String id) {
+    return setVolatile.contains(id);
+  }
+
+  /**
+   * @param id The lower-cased id of the entry.
+   * @return Returns true if the entry is in a loop that renders the same way every time. Once such
+   *     an entry renders inside itself, it would never stop.
+   */
+  boolean isLooping(@NotNull String id) {
+    return setLooping.contains(id);
+  }
+
+  /**
+   * @param id The lower-cased id of the entry.
+   * @return Returns the nesting depth of the entry. An entry that references no other entry has a
+   *     depth of 1. If the entry can reach a loop, -1 is returned. If there is no entry, 0 is
+   *     returned.
+   */
+  int getDepth(@NotNull String id) {
+    Integer index = mapIndices.get(id);
+    return index != null ? depths[index] : 0;
+  }
+
+  /**
+   * @param id The lower-cased id of the entry.
+   * @return Returns the ids of every entry that the entry references, directly or through other
+   *     entries. An entry in a loop references itself.
+   */
+  @NotNull
+  Set<String> getDependencies(@NotNull String id) {
+    Integer start = mapIndices.get(id);
+    if (start == null) return Collections.emptySet();
+    Set<String> set = new LinkedHashSet<>();
+    boolean[] visited = new boolean[ids.length];
+    int[] queue = new int[ids.length];
+    int head = 0;
+    int tail = 0;
+    for (int target : references[start]) {
+      visited[target] = true;
+      queue[tail++] = target;
+    }
+    while (head < tail) {
+      int node = queue[head++];
+      set.add(ids[node]);
+      for (int target : references[node]) {
+        if (!visited[target]) {
+          visited[target] = true;
+          queue[tail++] = target;
+        }
+      }
+    }
+    return Collections.unmodifiableSet(set);
+  }
+
+  /**
+   * @param id The lower-cased id of the entry.
+   * @return Returns the folded entry. If the entry is not folded, null is returned.
+   */
+  Folded getFolded(@NotNull String id) {
+    return mapFolded.get(id);
+  }
+
+  /** @return Returns the loops, each as the sorted ids of the entries in it. */
+  @NotNull
+  List<List<String>> getCycles() {
+    return this.cycles;
+  }
+
+  /** @return Returns the amount of entries in the graph. */
+  int size() {
+    return ids.length;
+  }
+
+  /**
+   * @param limit The nesting depth to test.
+   * @return Returns the ids of the entries with a nesting depth above the limit, deepest first.
+   */
+  @NotNull
+  List<String> getDeeperThan(int limit) {
+    List<String> list = new ArrayList<>();
+    for (int index = 0; index < ids.length; index++) {
+      if (depths[index] > limit) list.add(ids[index]);
+    }
+    list.sort((a, b) -> Integer.compare(getDepth(b), getDepth(a)));
+    return list;
+  }
+
+  /** Folded is an entry rendered ahead of time, as it renders the same way on every call. */
+  static final class Folded {
+
+    /** The rendered entry, with its color codes translated. */
+    private final String text;
+
+    /** The keys that the entry looks up, directly or through other entries. */
+    private final String[] keys;
+
+    private final int depth;
+    private final long renders;
+
+    /**
+     * @param text The rendered entry, with its color codes translated.
+     * @param keys The keys that the entry looks up, directly or through other entries.
+     * @param depth The nesting depth of the entry.
+     * @param renders The amount of nested entries looked up to render the entry.
+     */
+    Folded(String text, String[] keys, int depth, long renders) {
+      this.text = text;
+      this.keys = keys;
+      this.depth = depth;
+      this.renders = renders;
+    }
+
+    /**
+     * @param fields The EntryFields of a render.
+     * @return Returns true if any EntryField overrides a key that the entry looks up, so that the
+     *     entry renders differently than it was folded.
+     */
+    boolean isOverridden(FieldSet fields) {
+      if (keys.length == 0 || fields == FieldSet.EMPTY) return false;
+      for (String key : keys) {
+        if (fields.contains(key)) return true;
+      }
+      return false;
+    }
+
+    /** @return Returns the rendered entry, with its color codes translated. */
+    String getText() {
+      return this.text;
+    }
+
+    /** @return Returns the nesting depth of the entry. */
+    int getDepth() {
+      return this.depth;
+    }
+
+    /** @return Returns the amount of nested entries looked up to render the entry. */
+    long getRenders() {
+      return this.renders;
+    }
+  }
+}
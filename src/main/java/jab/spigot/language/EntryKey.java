@@ -0,0 +1,93 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * EntryKey is a pre-resolved entry id. Entry ids are case-insensitive, so every lookup with a
+ * String has to check the case of the id first. Callers that look up the same entry often can
+ * create an EntryKey once, and skip that work on every lookup.
+ *
+ * <p>Example:
+ *
+ * <pre>
+ *   private static final EntryKey WELCOME = EntryKey.of("welcome_message");
+ *   ...
+ *   String message = languagePackage.getString(WELCOME, language, fields);
+ * </pre>
+ *
+ * @author Jab
+ */
+public final class EntryKey {
+
+  /** The key, as given. */
+  private final String key;
+
+  /** The lower-cased key, as stored in LanguageFiles. */
+  private final String id;
+
+  /**
+   * (Private Constructor)
+   *
+   * @param key The key, as given.
+   * @param id The lower-cased key.
+   */
+  private EntryKey(String key, String id) {
+    this.key = key;
+    this.id = id;
+  }
+
+  /**
+   * @param key The id of the entry.
+   * @return Returns the pre-resolved EntryKey for the id.
+   */
+  @NotNull
+  public static EntryKey of(@NotNull String key) {
+    return new EntryKey(key, toId(key));
+  }
+
+  /** @return Returns the key, as given. */
+  @NotNull
+  public String getKey() {
+    return this.key;
+  }
+
+  /** @return Returns the lower-cased key, as stored in LanguageFiles. */
+  @NotNull
+  public String getId() {
+    return this.id;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return this == other || (other instanceof EntryKey && id.equals(((EntryKey) other).id));
+  }
+
+  @Override
+  public int hashCode() {
+    return id.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return this.key;
+  }
+
+  /**
+   * Lower-cases an entry id. If the id is already lower-case, it is returned as-is, without a copy
+   * being made.
+   *
+   * @param key The id to lower-case.
+   * @return Returns the lower-cased id.
+   */
+  @NotNull
+  static String toId(@NotNull String key) {
+    for (int index = 0; index < key.length(); index++) {
+      char c = key.charAt(index);
+      // Anything outside of ASCII is left to the full case mapping.
+      if ((c >= 'A' && c <= 'Z') || c >= 0x80) {
+        return key.toLowerCase();
+      }
+    }
+    return key;
+  }
+}
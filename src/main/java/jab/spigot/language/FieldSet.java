@@ -0,0 +1,210 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * FieldSet is a set of EntryFields indexed by their keys. Placeholders and conditions look up
+ * their keys in a FieldSet once per render, so the keys of the fields are hashed once when the set
+ * is built instead of being compared one by one on every lookup.
+ *
+ * <p>A FieldSet can be re-used for any amount of renders. The keys of a FieldSet are fixed, while
+ * the values of its fields can be changed between renders with {@link #setValue(String,
+ * Object)}.
+ *
+ * <p>If more than one field has the same key, the first field is used, the same as an EntryField
+ * Array. Sets with few fields are searched in order, as that is faster than hashing for them.
+ *
+ * @author Jab
+ */
+public final class FieldSet {
+
+  /** The FieldSet with no fields. */
+  public static final FieldSet EMPTY = new FieldSet(new EntryField[0]);
+
+  /** The most fields that are searched in order instead of being hashed. */
+  private static final int LINEAR = 8;
+
+  /** The fields, in the order given. (Can contain nulls and repeated keys) */
+  private final EntryField[] fields;
+
+  /** The fields by the hash of their keys, with linear probing. Null if the set is small. */
+  private final EntryField[] table;
+
+  private final int mask;
+
+  /**
+   * (Private Constructor)
+   *
+   * @param fields The fields, in the order given.
+   */
+  private FieldSet(EntryField[] fields) {
+    this.fields = fields;
+    if (fields.length <= LINEAR) {
+      this.table = null;
+      this.mask = 0;
+      return;
+    }
+    EntryField[] table = new EntryField[Integer.highestOneBit(fields.length - 1) << 2];
+    int mask = table.length - 1;
+    for (EntryField field : fields) {
+      if (field == null) continue;
+      String key = field.getKey();
+      int index = hash(key) & mask;
+      while (table[index] != null && !table[index].isKey(key)) {
+        index = (index + 1) & mask;
+      }
+      // The first field with a key is used, so repeated keys are not added.
+      if (table[index] == null) table[index] = field;
+    }
+    this.table = table;
+    this.mask = mask;
+  }
+
+  /**
+   * @param key The key of the field.
+   * @return Returns the first field with the key. If no field has the key, null is returned.
+   */
+  @Nullable
+  public EntryField get(@NotNull String key) {
+    EntryField[] table = this.table;
+    if (table == null) {
+      for (EntryField field : fields) {
+        if (field != null && field.isKey(key)) return field;
+      }
+      return null;
+    }
+    int index = hash(key) & mask;
+    EntryField field;
+    while ((field = table[index]) != null) {
+      if (field.isKey(key)) return field;
+      index = (index + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * @param key The key of the field.
+   * @return Returns true if a field has the key.
+   */
+  public boolean contains(@NotNull String key) {
+    return get(key) != null;
+  }
+
+  /**
+   * Sets the value of the field with a key, so that the FieldSet can be re-used for another
+   * render.
+   *
+   * @param key The key of the field.
+   * @param value The value to set.
+   * @return Returns true if a field has the key. If no field has the key, nothing is set.
+   */
+  public boolean setValue(@NotNull String key, @Nullable Object value) {
+    EntryField field = get(key);
+    if (field == null) return false;
+    field.setValue(value);
+    return true;
+  }
+
+  /** @return Returns true if the FieldSet has no fields. */
+  public boolean isEmpty() {
+    for (EntryField field : fields) {
+      if (field != null) return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return Returns the fields, in the order given. The Array can contain nulls and repeated keys,
+   *     and should not be modified.
+   */
+  @NotNull
+  EntryField[] getFields() {
+    return this.fields;
+  }
+
+  /** @return Returns a FieldSet of copies of the fields, holding their current values. */
+  @NotNull
+  FieldSet copy() {
+    if (fields.length == 0) return this;
+    EntryField[] copies = new EntryField[fields.length];
+    for (int index = 0; index < fields.length; index++) {
+      EntryField field = fields[index];
+      if (field != null) {
+        copies[index] = new EntryField(field.getKey(), field.getValue());
+      }
+    }
+    return new FieldSet(copies);
+  }
+
+  /**
+   * Creates a FieldSet of EntryFields. A small Array is used as-is, and is not copied.
+   *
+   * @param entries The EntryFields. (Can be null, or contain nulls)
+   * @return Returns the FieldSet of the EntryFields.
+   */
+  @NotNull
+  public static FieldSet of(EntryField... entries) {
+    if (entries == null || entries.length == 0) return EMPTY;
+    return new FieldSet(entries.length <= LINEAR ? entries : entries.clone());
+  }
+
+  /** @return Returns a new Builder. */
+  @NotNull
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param key The key to hash.
+   * @return Returns the hash of the key, with the high bits spread into the low bits.
+   */
+  private static int hash(String key) {
+    int hash = key.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Builder collects fields for a FieldSet. Setting a key that is already set replaces its value.
+   */
+  public static final class Builder {
+
+    private final Map<String, EntryField> mapFields = new LinkedHashMap<>();
+
+    /** (Private Constructor) */
+    private Builder() {}
+
+    /**
+     * @param key The key of the field.
+     * @param value The value of the field.
+     * @return Returns the Builder.
+     */
+    @NotNull
+    public Builder set(@NotNull String key, @Nullable Object value) {
+      mapFields.put(key, new EntryField(key, value));
+      return this;
+    }
+
+    /**
+     * @param field The field to add. If a field with the same key is set, it is replaced.
+     * @return Returns the Builder.
+     */
+    @NotNull
+    public Builder add(@NotNull EntryField field) {
+      mapFields.put(field.getKey(), field);
+      return this;
+    }
+
+    /** @return Returns the FieldSet of the fields set. */
+    @NotNull
+    public FieldSet build() {
+      if (mapFields.isEmpty()) return EMPTY;
+      return new FieldSet(mapFields.values().toArray(new EntryField[0]));
+    }
+  }
+}
@@ -0,0 +1,176 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * InternTable shares equal Strings and Templates between the language files of a LanguagePackage
+ * as they are read. Packages repeat the same text across Languages and appended packages, such as
+ * entries left untranslated, color codes and command names. With a table, each distinct entry
+ * value is held once, along with the ids of the entries and the literal text of Templates.
+ *
+ * <p>The table holds the shared instances weakly, for as long as a LanguageFile holds them. Files
+ * read by a load share instances with those read later by an append, a reload or a Language loaded
+ * lazily, while the table itself never keeps a String of the LanguagePackage alive. The counters
+ * are reset each time the LanguagePackage is loaded.
+ *
+ * <p>The bytes saved are estimated for a 64-bit JVM with compressed references and compact
+ * Strings. They count the Strings and Templates that were replaced by a shared instance, and could
+ * be collected once the read was complete.
+ *
+ * @author Jab
+ */
+public final class InternTable {
+
+  /** The shared instance of each String, weakly held by the instance itself. */
+  private final Map<String, WeakReference<String>> mapStrings;
+
+  /** The shared instance of each Template, weakly held by the raw String of the instance. */
+  private final Map<String, WeakReference<Template>> mapTemplates;
+
+  private long bytesSaved;
+  private long shared;
+
+  InternTable() {
+    this.mapStrings = new WeakHashMap<>();
+    this.mapTemplates = new WeakHashMap<>();
+  }
+
+  /**
+   * Shares the ids and values of entries read from a language file.
+   *
+   * @param entries The entries read, using {@link LanguageFile#read(java.io.File)}. The Map is not
+   *     modified.
+   * @return Returns a new Map of the entries, holding the shared instances. Templates that were
+   *     read before are held as shared entries, so that compact storage keeps them as they are.
+   */
+  @NotNull
+  synchronized Map<String, Object> intern(@NotNull Map<String, Object> entries) {
+    Map<String, Object> map = new HashMap<>(entries.size() * 4 / 3 + 1);
+    for (Map.Entry<String, Object> entry : entries.entrySet()) {
+      Object value = entry.getValue();
+      if (value instanceof Template) {
+        Template template = (Template) value;
+        // A Template read before is held by another entry as well.
+        boolean seen = get(mapTemplates, template.getRaw()) != null;
+        template = intern(template);
+        value = seen ? LanguageFile.Entry.shared(template) : template;
+      } else if (value instanceof StringPool) {
+        value = intern((StringPool) value);
+      }
+      map.put(intern(entry.getKey()), value);
+    }
+    return map;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param template The Template to share.
+   * @return Returns the shared Template with the same raw String.
+   */
+  private Template intern(Template template) {
+    Template sharedTemplate = get(mapTemplates, template.getRaw());
+    if (sharedTemplate != null) {
+      if (sharedTemplate != template) {
+        bytesSaved += template.getSize();
+        shared++;
+      }
+      return sharedTemplate;
+    }
+    template = template.intern(this::intern);
+    mapTemplates.put(template.getRaw(), new WeakReference<>(template));
+    return template;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param pool The StringPool to share the Templates of.
+   * @return Returns a new StringPool of the shared Templates, as the pool itself holds the state of
+   *     its rolls.
+   */
+  private StringPool intern(StringPool pool) {
+    StringPool interned = new StringPool(pool.getType());
+    for (Template template : pool.getTemplates()) {
+      interned.add(intern(template));
+    }
+    return interned;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param string The String to share.
+   * @return Returns the shared String equal to the String.
+   */
+  private String intern(String string) {
+    String sharedString = get(mapStrings, string);
+    if (sharedString == null) {
+      mapStrings.put(string, new WeakReference<>(string));
+      return string;
+    }
+    if (sharedString != string) {
+      bytesSaved += sizeOf(string);
+      shared++;
+    }
+    return sharedString;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param map The Map of shared instances.
+   * @param key The key of the instance.
+   * @param <E> The type of the instance.
+   * @return Returns the shared instance. If none is held, or it was collected, null is returned.
+   */
+  private static <E> E get(Map<String, WeakReference<E>> map, String key) {
+    WeakReference<E> reference = map.get(key);
+    return reference != null ? reference.get() : null;
+  }
+
+  /** Resets the counters. The shared instances are kept, for as long as they are held. */
+  synchronized void reset() {
+    bytesSaved = 0;
+    shared = 0;
+  }
+
+  /** @return Returns the estimated bytes saved since the LanguagePackage was last loaded. */
+  public synchronized long getBytesSaved() {
+    return this.bytesSaved;
+  }
+
+  /**
+   * @return Returns the amount of Strings and Templates replaced by a shared instance since the
+   *     LanguagePackage was last loaded.
+   */
+  public synchronized long getShared() {
+    return this.shared;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "shared=" + shared + ", bytesSaved=" + bytesSaved;
+  }
+
+  /**
+   * @param string The String to measure.
+   * @return Returns the estimated bytes held by the String and its Array.
+   */
+  static long sizeOf(@NotNull String string) {
+    int bytesPerChar = 1;
+    for (int index = 0; index < string.length(); index++) {
+      if (string.charAt(index) > 0xFF) {
+        bytesPerChar = 2;
+        break;
+      }
+    }
+    // The String, then its Array: a 16 byte header, with the contents padded to 8 bytes.
+    return 24 + ((16 + (long) string.length() * bytesPerChar + 7) & ~7L);
+  }
+}
@@ -1,68 +1,263 @@
 package jab.spigot.language;
 
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 /**
- * TODO: Document.
+ * Language is a locale that LanguageFiles can be written for. Languages are registered at runtime,
+ * and each is assigned a dense id, starting at 0, so that per-language data can be stored in a
+ * plain array indexed by id.
+ *
+ * <p>Languages are resolved by name, by abbreviation, and by Minecraft client locale (such as
+ * 'en_us') through hash tables that are rebuilt when a Language is registered, so a lookup never
+ * scans the registered Languages.
+ *
+ * <p>English is always registered, with the id 0.
+ *
+ * <p>NOTE: Language was an enum. {@link #name()}, {@link #ordinal()}, {@link #valueOf(String)},
+ * {@link #values()} and {@link #compareTo(Language)} behave as they did, with the id in place of
+ * the ordinal. Code that switches on a Language, or holds Languages in an EnumMap or EnumSet, no
+ * longer compiles, and should use if-statements and Maps or Sets keyed by Language, or arrays
+ * indexed by {@link #getId()}. Code compiled against the enum has to be compiled again.
  *
  * @author Josh
  */
-public enum Language {
+public final class Language implements Comparable<Language> {
+
+  /** The registered Languages and their lookup tables. Replaced whenever a Language registers. */
+  private static volatile Registry registry = new Registry();
 
-  English(0, "en");
+  public static final Language English = register("English", "en");
 
-  private int id;
-  private String abbreviation;
+  private final int id;
+  private final String name;
+  private final String abbreviation;
+  private final String[] locales;
+
+  /**
+   * (Private Constructor)
+   *
+   * @param id The dense id of the Language.
+   * @param name The name of the Language.
+   * @param abbreviation The abbreviation of the Language, as used in the names of LanguageFiles.
+   * @param locales The Minecraft client locales of the Language.
+   */
+  private Language(int id, String name, String abbreviation, String[] locales) {
+    this.id = id;
+    this.name = name;
+    this.abbreviation = abbreviation;
+    this.locales = locales;
+  }
+
+  @Override
+  public String toString() {
+    return this.name;
+  }
 
-  Language(int id, String abbreviation) {
-    setId(id);
-    setAbbreviation(abbreviation);
+  /** @return Returns the name of the Language. */
+  @NotNull
+  public String name() {
+    return this.name;
   }
 
   public String getAbbreviation() {
     return this.abbreviation;
   }
 
-  private void setAbbreviation(String abbreviation) {
-    this.abbreviation = abbreviation;
+  public int getId() {
+    return this.id;
   }
 
-  public int getId() {
+  /**
+   * Kept from when Language was an enum.
+   *
+   * @return Returns the id of the Language.
+   */
+  public int ordinal() {
     return this.id;
   }
 
-  private void setId(int id) {
-    this.id = id;
+  /**
+   * Compares Languages by id, the same as an enum compares by ordinal.
+   *
+   * @param other The Language to compare to.
+   * @return Returns a negative number if the Language has a lower id than the other, 0 if it is
+   *     the same Language, or a positive number if it has a higher id.
+   */
+  @Override
+  public int compareTo(@NotNull Language other) {
+    return Integer.compare(this.id, other.id);
   }
 
-  public static Language getLanguage(int id) {
-    Language returned = null;
-    for (Language language : Language.values()) {
-      if (language.getId() == id) {
-        returned = language;
-        break;
+  /** @return Returns the Minecraft client locales registered for the Language. */
+  @NotNull
+  public String[] getLocales() {
+    return locales.clone();
+  }
+
+  /**
+   * Registers a Language. Its client locales resolve to it exactly. Any other locale that starts
+   * with the abbreviation of the Language, followed by '_', resolves to it as well, unless the
+   * abbreviation of another Language matches more of the locale.
+   *
+   * @param name The name of the Language. (Case-insensitive)
+   * @param abbreviation The abbreviation of the Language, as used in the names of LanguageFiles,
+   *     such as 'pt' for 'package_pt.yml'. (Case-insensitive)
+   * @param locales The Minecraft client locales of the Language, such as 'pt_br'.
+   * @return Returns the registered Language.
+   * @throws IllegalArgumentException Thrown if the name, the abbreviation or any locale is already
+   *     registered.
+   */
+  @NotNull
+  public static synchronized Language register(
+      @NotNull String name, @NotNull String abbreviation, String... locales) {
+    Registry registry = Language.registry;
+    if (registry.mapNames.containsKey(toKey(name))) {
+      throw new IllegalArgumentException("Language is already registered: " + name);
+    }
+    if (registry.mapAbbreviations.containsKey(toKey(abbreviation))) {
+      throw new IllegalArgumentException("Abbreviation is already registered: " + abbreviation);
+    }
+    String[] keys = new String[locales.length];
+    for (int index = 0; index < locales.length; index++) {
+      keys[index] = toKey(locales[index]);
+      if (registry.mapLocales.containsKey(keys[index])) {
+        throw new IllegalArgumentException("Locale is already registered: " + locales[index]);
       }
     }
-    return returned;
+    Language language = new Language(registry.languages.length, name, abbreviation, keys);
+    Language.registry = new Registry(registry, language);
+    return language;
   }
 
-  public static Language getLanguage(String name) {
-    Language returned = null;
-    for (Language language : Language.values()) {
-      if (language.name().equalsIgnoreCase(name)) {
-        returned = language;
-        break;
-      }
+  /** @return Returns the amount of registered Languages. Ids range from 0 to the amount - 1. */
+  public static int count() {
+    return registry.languages.length;
+  }
+
+  /** @return Returns the registered Languages, in order of id. */
+  @NotNull
+  public static Language[] values() {
+    return registry.languages.clone();
+  }
+
+  /**
+   * Resolves a Language by its exact name, the same as the valueOf method of an enum. For a
+   * case-insensitive lookup that returns null instead of throwing, use {@link
+   * #getLanguage(String)}.
+   *
+   * @param name The name of the Language. (Case-sensitive)
+   * @return Returns the Language with the name.
+   * @throws IllegalArgumentException Thrown if no Language is registered with the name.
+   */
+  @NotNull
+  public static Language valueOf(@NotNull String name) {
+    if (name == null) throw new NullPointerException("Name is null");
+    Language language = registry.mapNames.get(toKey(name));
+    if (language == null || !language.name.equals(name)) {
+      throw new IllegalArgumentException("No Language is registered with the name: " + name);
     }
-    return returned;
+    return language;
+  }
+
+  /**
+   * @param id The id of the Language.
+   * @return Returns the Language with the id. If none is registered, null is returned.
+   */
+  public static Language getLanguage(int id) {
+    Language[] languages = registry.languages;
+    return id >= 0 && id < languages.length ? languages[id] : null;
+  }
+
+  /**
+   * @param name The name of the Language. (Case-insensitive)
+   * @return Returns the Language with the name. If none is registered, null is returned.
+   */
+  public static Language getLanguage(String name) {
+    return name != null ? registry.mapNames.get(toKey(name)) : null;
   }
 
+  /**
+   * @param abbreviation The abbreviation of the Language. (Case-insensitive)
+   * @return Returns the Language with the abbreviation. If none is registered, null is returned.
+   */
   public static Language getLanguageWithAbbreviation(String abbreviation) {
-    Language returned = null;
-    for (Language language : Language.values()) {
-      if (language.getAbbreviation().equalsIgnoreCase(abbreviation)) {
-        returned = language;
-        break;
+    return abbreviation != null ? registry.mapAbbreviations.get(toKey(abbreviation)) : null;
+  }
+
+  /**
+   * Resolves a Minecraft client locale, such as 'en_us'. A locale registered with a Language
+   * resolves to it. Otherwise, the locale is resolved as an abbreviation, dropping the last '_'
+   * part of it until one is registered, so that 'pt_br' resolves to a Language with the
+   * abbreviation 'pt_br' before one with 'pt'.
+   *
+   * @param locale The client locale. (Case-insensitive)
+   * @return Returns the Language of the locale. If none is registered, null is returned.
+   */
+  public static Language getLanguageWithLocale(String locale) {
+    if (locale == null) return null;
+    Registry registry = Language.registry;
+    String key = toKey(locale);
+    Language language = registry.mapLocales.get(key);
+    // Resolve the longest part of the locale that is an abbreviation.
+    int index = key.length();
+    while (language == null && index > 0) {
+      language = registry.mapAbbreviations.get(key.substring(0, index));
+      index = key.lastIndexOf('_', index - 1);
+    }
+    return language;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param string The name, abbreviation or locale.
+   * @return Returns the key for the lookup tables.
+   */
+  private static String toKey(String string) {
+    return EntryKey.toId(string);
+  }
+
+  /** Registry holds the registered Languages, and the tables to resolve them with. */
+  private static final class Registry {
+
+    private final Language[] languages;
+    private final Map<String, Language> mapNames;
+    private final Map<String, Language> mapAbbreviations;
+    private final Map<String, Language> mapLocales;
+
+    /** Creates an empty Registry. */
+    Registry() {
+      this.languages = new Language[0];
+      this.mapNames = Collections.emptyMap();
+      this.mapAbbreviations = Collections.emptyMap();
+      this.mapLocales = Collections.emptyMap();
+    }
+
+    /**
+     * Creates a Registry with a Language added.
+     *
+     * @param other The Registry to add to.
+     * @param language The Language to add.
+     */
+    Registry(Registry other, Language language) {
+      this.languages = Arrays.copyOf(other.languages, other.languages.length + 1);
+      this.languages[language.id] = language;
+      Map<String, Language> mapNames = new HashMap<>(other.mapNames);
+      mapNames.put(toKey(language.name), language);
+      Map<String, Language> mapAbbreviations = new HashMap<>(other.mapAbbreviations);
+      mapAbbreviations.put(toKey(language.abbreviation), language);
+      Map<String, Language> mapLocales = new HashMap<>(other.mapLocales);
+      for (String locale : language.locales) {
+        mapLocales.put(locale, language);
       }
+      this.mapNames = mapNames;
+      this.mapAbbreviations = mapAbbreviations;
+      this.mapLocales = mapLocales;
     }
-    return returned;
   }
 }
@@ -7,10 +7,12 @@ import org.bukkit.configuration.file.YamlConfiguration;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.Set;
 
 /**
  * TODO: Document.
@@ -20,7 +22,21 @@ import java.util.Random;
 @SuppressWarnings("WeakerAccess")
 public class LanguageFile {
 
-  private Map<String, Object> mapEntries;
+  /** The default entries of English LanguageFiles. */
+  private static final Map<String, Entry> DEFAULTS = createDefaults();
+
+  /**
+   * The entries of the file. The Map is never modified once it is assigned. Changes are made to a
+   * copy, which is then assigned in place of the Map, so readers never see a partial change.
+   */
+  private volatile Map<String, Entry> mapEntries;
+
+  /** The graph of references between the entries. Rebuilt when the entries change. */
+  private volatile EntryGraph graph;
+
+  /** Set to true to store the entries in an EntryArena, compiling them as they are looked up. */
+  private boolean compact;
+
   private File file;
   private Language language;
 
@@ -31,60 +47,260 @@ public class LanguageFile {
    * @param language The language specified for the file.
    */
   public LanguageFile(@NotNull File file, @NotNull Language language) {
-    this.mapEntries = new HashMap<>();
     setFile(file);
     setLanguage(language);
-    if (language == Language.English) {
-      setDefaults();
-    }
+    this.mapEntries = Collections.unmodifiableMap(createEntries());
+  }
+
+  /**
+   * (Private Constructor)
+   *
+   * <p>Creates a copy of a LanguageFile. The copy shares the entries of the LanguageFile until
+   * either of them is changed.
+   *
+   * @param other The LanguageFile to copy.
+   */
+  private LanguageFile(LanguageFile other) {
+    setFile(other.file);
+    setLanguage(other.language);
+    this.compact = other.compact;
+    this.mapEntries = other.mapEntries;
   }
 
-  /** Loads the LanguageFile. */
+  /** Loads the LanguageFile. Any entries added or appended before are replaced. */
   public void load() {
-    FileConfiguration config = getYaml(getFile());
-    for (String key : config.getKeys(false)) {
-      Object value;
-      if (config.isConfigurationSection(key)) {
-        ConfigurationSection section = config.getConfigurationSection(key);
-        PoolType type = PoolType.SEQUENTIAL;
-        if (section.contains("type")) {
-          String sType = section.getString("type");
-          type = PoolType.getPoolType(sType);
-          if (type == null) {
-            type = PoolType.SEQUENTIAL;
-            System.out.println(
-                "WARNING: ["
-                    + key
-                    + "] Invalid PoolType: "
-                    + sType
-                    + ". Using '"
-                    + type.name()
-                    + "' instead.");
-          }
-        }
-        StringPool stringPool = new StringPool(type);
-        List list = section.getList("pool");
-        if (list.isEmpty()) {
-          System.out.println("WARNING: [" + key + "] Pool is empty!");
+    load(read(getFile()));
+  }
+
+  /**
+   * Loads the LanguageFile from entries read beforehand. Any entries added or appended before are
+   * replaced.
+   *
+   * @param entries The entries read from the file, using {@link #read(File)}.
+   */
+  synchronized void load(@NotNull Map<String, Object> entries) {
+    Map<String, Entry> map = createEntries();
+    putAll(map, entries);
+    store(map);
+  }
+
+  /**
+   * Appends another language file's contents to the language file.
+   *
+   * @param file The file handle.
+   */
+  public void appendFile(@NotNull File file) {
+    append(read(file));
+  }
+
+  /**
+   * Appends entries read beforehand from another language file.
+   *
+   * @param entries The entries read from the file, using {@link #read(File)}.
+   */
+  synchronized void append(@NotNull Map<String, Object> entries) {
+    Map<String, Entry> map = new HashMap<>();
+    putAll(map, entries);
+    store(mapEntries, map);
+  }
+
+  /** @return Returns a copy of the LanguageFile, to change without affecting this one. */
+  @NotNull
+  LanguageFile copy() {
+    return new LanguageFile(this);
+  }
+
+  /**
+   * Merges the LanguageFile over a fallback LanguageFile. Entries of this LanguageFile override
+   * entries of the fallback with the same id.
+   *
+   * @param fallback The LanguageFile to fall back to.
+   * @return Returns the merged LanguageFile. Neither LanguageFile is changed.
+   */
+  @NotNull
+  LanguageFile merge(@NotNull LanguageFile fallback) {
+    LanguageFile merged = new LanguageFile(this);
+    merged.store(fallback.mapEntries, mapEntries);
+    return merged;
+  }
+
+  /**
+   * @param key The id of the entry.
+   * @return Returns the entry with the given id. If no entry is registered with the given id, null
+   *     is returned.
+   */
+  public String get(@NotNull String key) {
+    return toRaw(lookup(EntryKey.toId(key)));
+  }
+
+  /**
+   * @param key The pre-resolved id of the entry.
+   * @return Returns the entry with the given id. If no entry is registered with the given id, null
+   *     is returned.
+   */
+  public String get(@NotNull EntryKey key) {
+    return toRaw(lookup(key.getId()));
+  }
+
+  /**
+   * @param key The id of the entry.
+   * @return Returns the compiled entry with the given id. If no entry is registered with the given
+   *     id, null is returned.
+   */
+  public Template getTemplate(@NotNull String key) {
+    return lookup(EntryKey.toId(key));
+  }
+
+  /**
+   * @param key The pre-resolved id of the entry.
+   * @return Returns the compiled entry with the given id. If no entry is registered with the given
+   *     id, null is returned.
+   */
+  public Template getTemplate(@NotNull EntryKey key) {
+    return lookup(key.getId());
+  }
+
+  /**
+   * @param key The pre-resolved id of the entry.
+   * @return Returns true if the entry is a pool, and renders differently from one lookup to the
+   *     next. If no entry is registered with the given id, false is returned.
+   */
+  boolean isStringPool(@NotNull EntryKey key) {
+    Entry entry = mapEntries.get(key.getId());
+    return entry != null && entry.stringPool != null;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param id The lower-cased id of the entry.
+   * @return Returns the compiled entry with the given id, rolling it if it is a pool. If no entry
+   *     is registered with the given id, null is returned.
+   */
+  private Template lookup(String id) {
+    Entry entry = mapEntries.get(id);
+    return entry != null ? entry.get() : null;
+  }
+
+  /**
+   * Builds the graph of references between the entries, if the entries changed since it was last
+   * built.
+   *
+   * @return Returns the graph of references between the current entries.
+   */
+  @NotNull
+  EntryGraph getGraph() {
+    Map<String, Entry> mapEntries = this.mapEntries;
+    EntryGraph graph = this.graph;
+    if (graph == null || !graph.isOf(mapEntries)) {
+      Map<String, Template[]> mapTemplates = new HashMap<>(mapEntries.size() * 2);
+      Set<String> pools = new HashSet<>();
+      for (Map.Entry<String, Entry> entry : mapEntries.entrySet()) {
+        Entry value = entry.getValue();
+        if (value.stringPool != null) {
+          pools.add(entry.getKey());
+          mapTemplates.put(entry.getKey(), value.stringPool.getTemplates());
         } else {
-          for (Object o : list) {
-            stringPool.add(LanguagePackage.toAString(o));
-          }
+          mapTemplates.put(entry.getKey(), new Template[] {value.template});
         }
-        value = stringPool;
-      } else {
-        value = LanguagePackage.toAString(config.get(key));
       }
-      add(key, value);
+      // Compact entries are not folded, as each folded entry holds its rendered text.
+      boolean fold = !(mapEntries instanceof EntryArena);
+      graph = new EntryGraph(mapEntries, mapTemplates, pools, fold);
+      this.graph = graph;
     }
+    return graph;
+  }
+
+  private static String toRaw(Template template) {
+    return template != null ? template.getRaw() : null;
   }
 
   /**
-   * Appends another language file's contents to the language file.
+   * Adds an entry with the given id. String entries are compiled into Templates.
    *
-   * @param file The file handle.
+   * @param key The ID to identify the entry.
+   * @param entry The entry to add.
    */
-  public void appendFile(@NotNull File file) {
+  public synchronized void add(String key, Object entry) {
+    store(mapEntries, Collections.singletonMap(EntryKey.toId(key), Entry.of(entry)));
+  }
+
+  /**
+   * Sets whether the entries are stored compactly. Compact entries are held in a single Array, and
+   * are compiled the first time they are looked up, which uses less memory for files with many
+   * entries that are seldom used. Entries stored already are stored again.
+   *
+   * @param compact Set to true to store the entries compactly.
+   */
+  synchronized void setCompact(boolean compact) {
+    if (this.compact == compact) return;
+    this.compact = compact;
+    store(mapEntries, Collections.<String, Entry>emptyMap());
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Assigns a new Map of entries in place of the current one.
+   *
+   * @param map The entries to assign. The Map is not modified after.
+   */
+  private void store(Map<String, Entry> map) {
+    store(map, Collections.<String, Entry>emptyMap());
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Assigns a new Map of entries in place of the current one. Compact entries are copied as
+   * they are, without compiling them.
+   *
+   * @param base The entries to assign.
+   * @param changes The entries to assign over the base entries. Entries with the id of a base
+   *     entry replace it.
+   */
+  private void store(Map<String, Entry> base, Map<String, Entry> changes) {
+    if (compact) {
+      this.mapEntries = new EntryArena(base, changes);
+      return;
+    }
+    Map<String, Entry> map = new HashMap<>(base);
+    map.putAll(changes);
+    this.mapEntries = Collections.unmodifiableMap(map);
+  }
+
+  /** @return Returns the file handle. */
+  public File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Sets the file handle.
+   *
+   * @param file The file handle to set.
+   */
+  private void setFile(File file) {
+    this.file = file;
+  }
+
+  /**
+   * @return Returns a new Map of entries, containing the default entries for the file's Language.
+   */
+  private Map<String, Entry> createEntries() {
+    return language == Language.English ? new HashMap<>(DEFAULTS) : new HashMap<>();
+  }
+
+  /**
+   * Reads the entries of a language file. This does not affect any LanguageFile, and can be done
+   * for several files at once.
+   *
+   * @param file The file handle to read.
+   * @return Returns a Map of the entries read, with their ids lower-cased.
+   */
+  @NotNull
+  static Map<String, Object> read(@NotNull File file) {
+    Map<String, Object> map = new HashMap<>();
     FileConfiguration config = getYaml(file);
     for (String key : config.getKeys(false)) {
       Object value;
@@ -119,53 +335,36 @@ public class LanguageFile {
       } else {
         value = LanguagePackage.toAString(config.get(key));
       }
-      add(key, value);
+      put(map, key, value);
     }
+    return map;
   }
 
   /**
-   * @param key The id of the entry.
-   * @return Returns the entry with the given id. If no entry is registered with the given id, null
-   *     is returned.
-   */
-  public String get(@NotNull String key) {
-    key = key.toLowerCase();
-    if (mapEntries.containsKey(key)) {
-      Object o = mapEntries.get(key);
-      if (o instanceof StringPool) {
-        return ((StringPool) o).roll();
-      } else if (o instanceof String) {
-        return (String) o;
-      } else {
-        return o.toString();
-      }
-    }
-    return null;
-  }
-
-  /**
-   * Adds an entry with the given id.
+   * Adds an entry to a Map of entries. String entries are compiled into Templates.
    *
+   * @param map The Map to add the entry to.
    * @param key The ID to identify the entry.
    * @param entry The entry to add.
    */
-  public void add(String key, Object entry) {
-    key = key.toLowerCase();
-    mapEntries.put(key, entry);
-  }
-
-  /** @return Returns the file handle. */
-  public File getFile() {
-    return this.file;
+  private static void put(Map<String, Object> map, String key, Object entry) {
+    key = EntryKey.toId(key);
+    if (entry instanceof String) {
+      entry = Template.compile((String) entry);
+    }
+    map.put(key, entry);
   }
 
   /**
-   * Sets the file handle.
+   * Adds entries read from a language file to a Map of entries.
    *
-   * @param file The file handle to set.
+   * @param map The Map to add the entries to.
+   * @param entries The entries read, using {@link #read(File)}.
    */
-  private void setFile(File file) {
-    this.file = file;
+  private static void putAll(Map<String, Entry> map, Map<String, Object> entries) {
+    for (Map.Entry<String, Object> entry : entries.entrySet()) {
+      map.put(entry.getKey(), Entry.of(entry.getValue()));
+    }
   }
 
   /**
@@ -174,7 +373,7 @@ public class LanguageFile {
    * @param file The file handle to read.
    * @return Returns the loaded YAML configuration instance for the file.
    */
-  private FileConfiguration getYaml(File file) {
+  private static FileConfiguration getYaml(File file) {
     return YamlConfiguration.loadConfiguration(file);
   }
 
@@ -187,32 +386,101 @@ public class LanguageFile {
     this.language = language;
   }
 
-  private void setDefaults() {
-    add("black", ChatColor.BLACK);
-    add("blue", ChatColor.DARK_BLUE);
-    add("green", ChatColor.DARK_GREEN);
-    add("cyan", ChatColor.DARK_AQUA);
-    add("aqua", ChatColor.DARK_AQUA);
-    add("red", ChatColor.DARK_RED);
-    add("purple", ChatColor.DARK_PURPLE);
-    add("pink", ChatColor.LIGHT_PURPLE);
-    add("gold", ChatColor.GOLD);
-    add("gray", ChatColor.DARK_GRAY);
-    add("light_gray", ChatColor.GRAY);
-    add("light_blue", ChatColor.BLUE);
-    add("light_green", ChatColor.GREEN);
-    add("light_cyan", ChatColor.AQUA);
-    add("light_aqua", ChatColor.AQUA);
-    add("light_red", ChatColor.RED);
-    add("light_purple", ChatColor.LIGHT_PURPLE);
-    add("yellow", ChatColor.YELLOW);
-    add("white", ChatColor.WHITE);
-    add("magic", ChatColor.MAGIC);
-    add("bold", ChatColor.BOLD);
-    add("strike", ChatColor.STRIKETHROUGH);
-    add("underline", ChatColor.UNDERLINE);
-    add("italic", ChatColor.ITALIC);
-    add("reset", ChatColor.RESET);
-    add("color_code", ChatColor.COLOR_CHAR);
+  private static Map<String, Entry> createDefaults() {
+    Map<String, Object> map = new HashMap<>();
+    setDefaults(map);
+    Map<String, Entry> defaults = new HashMap<>();
+    for (Map.Entry<String, Object> entry : map.entrySet()) {
+      defaults.put(entry.getKey(), Entry.shared((Template) entry.getValue()));
+    }
+    return defaults;
+  }
+
+  private static void setDefaults(Map<String, Object> map) {
+    put(map, "black", ChatColor.BLACK.toString());
+    put(map, "blue", ChatColor.DARK_BLUE.toString());
+    put(map, "green", ChatColor.DARK_GREEN.toString());
+    put(map, "cyan", ChatColor.DARK_AQUA.toString());
+    put(map, "aqua", ChatColor.DARK_AQUA.toString());
+    put(map, "red", ChatColor.DARK_RED.toString());
+    put(map, "purple", ChatColor.DARK_PURPLE.toString());
+    put(map, "pink", ChatColor.LIGHT_PURPLE.toString());
+    put(map, "gold", ChatColor.GOLD.toString());
+    put(map, "gray", ChatColor.DARK_GRAY.toString());
+    put(map, "light_gray", ChatColor.GRAY.toString());
+    put(map, "light_blue", ChatColor.BLUE.toString());
+    put(map, "light_green", ChatColor.GREEN.toString());
+    put(map, "light_cyan", ChatColor.AQUA.toString());
+    put(map, "light_aqua", ChatColor.AQUA.toString());
+    put(map, "light_red", ChatColor.RED.toString());
+    put(map, "light_purple", ChatColor.LIGHT_PURPLE.toString());
+    put(map, "yellow", ChatColor.YELLOW.toString());
+    put(map, "white", ChatColor.WHITE.toString());
+    put(map, "magic", ChatColor.MAGIC.toString());
+    put(map, "bold", ChatColor.BOLD.toString());
+    put(map, "strike", ChatColor.STRIKETHROUGH.toString());
+    put(map, "underline", ChatColor.UNDERLINE.toString());
+    put(map, "italic", ChatColor.ITALIC.toString());
+    put(map, "reset", ChatColor.RESET.toString());
+    put(map, "color_code", String.valueOf(ChatColor.COLOR_CHAR));
+  }
+
+  /**
+   * Entry is a stored entry. A Template is stored as-is, and a pool is rolled on each lookup, so a
+   * lookup does not need to test the type of the entry.
+   */
+  static final class Entry {
+
+    private final Template template;
+    private final StringPool stringPool;
+    private final boolean shared;
+
+    private Entry(Template template, StringPool stringPool, boolean shared) {
+      this.template = template;
+      this.stringPool = stringPool;
+      this.shared = shared;
+    }
+
+    /** @return Returns the Template of the entry, rolling the pool if the entry is a pool. */
+    Template get() {
+      return stringPool == null ? template : stringPool.rollTemplate();
+    }
+
+    /** @return Returns the Template of the entry. If the entry is a pool, null is returned. */
+    Template getTemplate() {
+      return this.template;
+    }
+
+    /**
+     * @return Returns true if the Template of the entry is shared with other LanguageFiles. Compact
+     *     storage keeps a shared entry as it is, rather than compiling it again on lookup.
+     */
+    boolean isShared() {
+      return this.shared;
+    }
+
+    /**
+     * @param entry The Entry, Template, StringPool or other Object to store. Other Objects are
+     *     stored as the compiled form of their String value.
+     * @return Returns the stored entry.
+     */
+    static Entry of(Object entry) {
+      if (entry instanceof Entry) {
+        return (Entry) entry;
+      } else if (entry instanceof StringPool) {
+        return new Entry(null, (StringPool) entry, false);
+      } else if (entry instanceof Template) {
+        return new Entry((Template) entry, null, false);
+      }
+      return new Entry(Template.compile(entry.toString()), null, false);
+    }
+
+    /**
+     * @param template The Template to store, shared with other LanguageFiles.
+     * @return Returns the stored entry.
+     */
+    static Entry shared(Template template) {
+      return new Entry(template, null, true);
+    }
   }
 }
@@ -7,10 +7,16 @@ import org.bukkit.Bukkit;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * LanguagePackage is a utility that provides the ability to substitute sections of a string
@@ -26,10 +32,11 @@ public class LanguagePackage {
   /** The standard 'line.separator' for most Java Strings. */
   public static final String NEW_LINE = "\n";
 
-  static final Random random = new Random();
-
-  /** The Map for LanguageFiles, assigned with their Languages. */
-  private Map<Language, LanguageFile> mapLanguageFiles;
+  /**
+   * The loaded state of the LanguagePackage. A new snapshot is built whenever the LanguagePackage
+   * is loaded or appended to, and assigned with a single volatile write.
+   */
+  private volatile PackSnapshot snapshot;
 
   /** The File Object for the directory where the LanguageFiles are stored. */
   private File directory;
@@ -40,6 +47,27 @@ public class LanguagePackage {
    */
   private String name;
 
+  /** The binary cache of the language files read. If null, no cache is used. */
+  private volatile PackCache cache;
+
+  /** The cache of rendered entries. If null, no renders are cached. */
+  private volatile RenderCache renderCache;
+
+  /** The state of loading Languages on demand. If null, every Language is loaded at once. */
+  private volatile LazyLanguages lazyLanguages;
+
+  /** Set to true to store the entries of LanguageFiles compactly. */
+  private volatile boolean compactStorage;
+
+  /** The table that Strings read are shared through. If null, Strings are not shared. */
+  private volatile InternTable internTable;
+
+  /**
+   * The index of the language files in the directory, rebuilt each time the LanguagePackage is
+   * loaded or reloaded. If null, the directory is not indexed yet.
+   */
+  private volatile DirectoryIndex directoryIndex;
+
   /**
    * Main constructor.
    *
@@ -48,45 +76,660 @@ public class LanguagePackage {
    *     "{{name}}_{{language_abbreviation}}.yml"
    */
   public LanguagePackage(@NotNull File directory, @NotNull String name) {
-    mapLanguageFiles = new HashMap<>();
+    snapshot = PackSnapshot.EMPTY;
     setDirectory(directory);
     setPackageName(name);
   }
 
-  /** Loads the LanguagePackage. */
+  /**
+   * Loads the LanguagePackage on the calling thread. Any packages appended before are appended
+   * again, in the same order.
+   *
+   * <p>The new state is built without affecting the current one, and replaces it once complete.
+   * Lookups made during the load are never blocked, and never see a partially loaded package.
+   *
+   * @see #loadAsync(Executor)
+   */
   public void load() {
+    try {
+      loadAsync(Runnable::run).join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw e;
+    }
+  }
+
+  /**
+   * Loads the LanguagePackage asynchronously. Each language file, including the files of appended
+   * packages, is read as a separate task on the executor. Once all files are read, the file of
+   * each Language is merged first, then the files of appended packages, in the order that they
+   * were appended. The result does not depend on the order that the reads complete in. The new
+   * state then replaces the current one.
+   *
+   * <p>If Languages are loaded lazily, the directory is indexed, and only the Languages loaded
+   * already are read again. Every other Language is read when it is first requested.
+   *
+   * @param executor The executor to read the files with.
+   * @return Returns a future that completes once the new state is in place.
+   * @see #enableLazyLoading(long)
+   */
+  @NotNull
+  public CompletableFuture<Void> loadAsync(@NotNull Executor executor) {
     String packageName = getPackageName();
-    File[] files = directory.listFiles();
-    if (files != null) {
-      for (File file : files) {
-        String name = file.getName().toLowerCase();
-        if (name.startsWith(packageName) && name.endsWith(".yml")) {
-          Language language =
-              Language.getLanguageWithAbbreviation(name.split("_")[1].split("\\.")[0]);
-          LanguageFile languageFile = new LanguageFile(file, language);
-          languageFile.load();
-          mapLanguageFiles.put(language, languageFile);
+    PackSnapshot snapshot = this.snapshot;
+    List<String> appendedPackages = snapshot.getAppendedPackages();
+    boolean lazy = lazyLanguages != null;
+    InternTable internTable = this.internTable;
+    if (internTable != null) internTable.reset();
+    DirectoryIndex listed = DirectoryIndex.of(directory);
+    DirectoryIndex directoryIndex = listed != null ? listed : DirectoryIndex.EMPTY;
+    directoryIndex.warnUnindexed(packageName);
+    for (String appendedPackage : appendedPackages) {
+      directoryIndex.warnUnindexed(appendedPackage);
+    }
+    // Read every file in parallel.
+    Map<File, CompletableFuture<Map<String, Object>>> mapReads = new HashMap<>();
+    Map<Language, File> mapFiles = new HashMap<>();
+    for (Map.Entry<Language, File> entry : directoryIndex.getFiles(packageName).entrySet()) {
+      if (!lazy || snapshot.getLanguageFile(entry.getKey()) != null) {
+        mapFiles.put(entry.getKey(), entry.getValue());
+      }
+    }
+    for (File file : mapFiles.values()) {
+      mapReads.put(file, CompletableFuture.supplyAsync(() -> readFile(file), executor));
+    }
+    for (String appendedPackage : appendedPackages) {
+      for (Language language : mapFiles.keySet()) {
+        File file = directoryIndex.getFile(appendedPackage, language);
+        if (file != null) {
+          mapReads.computeIfAbsent(
+              file, key -> CompletableFuture.supplyAsync(() -> readFile(key), executor));
         }
       }
     }
+    CompletableFuture<?>[] reads = mapReads.values().toArray(new CompletableFuture<?>[0]);
+    return CompletableFuture.allOf(reads)
+        .thenRun(
+            () -> {
+              // Merge the results in a fixed order.
+              Map<Language, LanguageFile> map = new HashMap<>();
+              for (Map.Entry<Language, File> entry : mapFiles.entrySet()) {
+                LanguageFile languageFile = new LanguageFile(entry.getValue(), entry.getKey());
+                languageFile.setCompact(compactStorage);
+                languageFile.load(mapReads.get(entry.getValue()).join());
+                map.put(entry.getKey(), languageFile);
+              }
+              for (String appendedPackage : appendedPackages) {
+                for (Map.Entry<Language, LanguageFile> entry : map.entrySet()) {
+                  File file = directoryIndex.getFile(appendedPackage, entry.getKey());
+                  if (file != null) {
+                    entry.getValue().append(mapReads.get(file).join());
+                  }
+                }
+              }
+              publish(map, appendedPackages, directoryIndex);
+              writeCache();
+            });
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Replaces the current state with a newly loaded one. Packages appended while the new state
+   * was loading are appended to it as well.
+   *
+   * @param map The Map for the loaded LanguageFiles.
+   * @param appendedPackages The packages that were appended to the loaded LanguageFiles.
+   * @param directoryIndex The index of the directory that the LanguageFiles were loaded from.
+   */
+  private synchronized void publish(
+      Map<Language, LanguageFile> map,
+      List<String> appendedPackages,
+      DirectoryIndex directoryIndex) {
+    setDirectoryIndex(directoryIndex);
+    List<String> current = snapshot.getAppendedPackages();
+    for (int index = appendedPackages.size(); index < current.size(); index++) {
+      append(map, current.get(index));
+    }
+    PackSnapshot previous = snapshot;
+    snapshot = new PackSnapshot(map, current, previous.getFallbacks(), previous.getMetrics());
+    checkReferences(previous, snapshot);
   }
 
   /**
-   * Appends another language package.
+   * Appends another language package. The appended state replaces the current one once complete.
+   *
+   * <p>The files of the package are found in the index of the directory built when the
+   * LanguagePackage was loaded. Files added to the directory since are found once the
+   * LanguagePackage is loaded or reloaded again. A file for a Language that the LanguagePackage
+   * has no file for is skipped.
    *
    * @param packageName The name of the package to append.
    */
-  public void appendPackage(@NotNull String packageName) {
-    File[] files = directory.listFiles();
-    if (files != null) {
-      for (File file : files) {
-        String name = file.getName().toLowerCase();
-        if (name.startsWith(packageName) && name.endsWith(".yml")) {
-          Language language =
-              Language.getLanguageWithAbbreviation(name.split("_")[1].split("\\.")[0]);
-          mapLanguageFiles.get(language).appendFile(file);
+  public synchronized void appendPackage(@NotNull String packageName) {
+    PackSnapshot snapshot = this.snapshot;
+    Map<Language, LanguageFile> map = new HashMap<>(snapshot.getLanguageFiles());
+    getDirectoryIndex().warnUnindexed(packageName);
+    append(map, packageName);
+    List<String> appendedPackages = new ArrayList<>(snapshot.getAppendedPackages());
+    appendedPackages.add(packageName);
+    this.snapshot =
+        new PackSnapshot(
+            map, appendedPackages, snapshot.getFallbacks(), snapshot.getMetrics());
+    checkReferences(snapshot, this.snapshot);
+    writeCache();
+  }
+
+  /**
+   * Reloads the Languages of the given files. Only the LanguageFiles of those Languages are parsed
+   * again, along with the files appended to them, in the order that their packages were appended.
+   * Files that do not belong to the LanguagePackage or to an appended package are ignored.
+   *
+   * @param fileNames The names of the files in the directory that changed.
+   */
+  public synchronized void reload(@NotNull Collection<String> fileNames) {
+    PackSnapshot snapshot = this.snapshot;
+    List<String> appendedPackages = snapshot.getAppendedPackages();
+    Set<Language> languages = new HashSet<>();
+    for (String fileName : fileNames) {
+      Language language = DirectoryIndex.getLanguage(fileName, getPackageName());
+      for (String appendedPackage : appendedPackages) {
+        if (language != null) break;
+        language = DirectoryIndex.getLanguage(fileName, appendedPackage);
+      }
+      if (language != null) {
+        languages.add(language);
+      }
+    }
+    if (languages.isEmpty()) return;
+    DirectoryIndex directoryIndex = DirectoryIndex.of(directory);
+    if (directoryIndex == null) return;
+    setDirectoryIndex(directoryIndex);
+    if (lazyLanguages != null) {
+      // Languages that are not loaded are read once they are requested.
+      languages.retainAll(snapshot.getLanguageFiles().keySet());
+    }
+    Map<Language, LanguageFile> map = new HashMap<>(snapshot.getLanguageFiles());
+    for (Language language : languages) {
+      LanguageFile languageFile = loadLanguage(language, directoryIndex, appendedPackages);
+      if (languageFile != null) {
+        map.put(language, languageFile);
+      } else {
+        map.remove(language);
+      }
+    }
+    this.snapshot =
+        new PackSnapshot(
+            map, appendedPackages, snapshot.getFallbacks(), snapshot.getMetrics());
+    checkReferences(snapshot, this.snapshot);
+    writeCache();
+  }
+
+  /**
+   * Sets the fallback chain of a Language. Entries missing from the Language are looked up in each
+   * fallback, in order. For example, a chain of 'pt_br -> pt -> en' is set with:
+   *
+   * <pre>
+   *   setFallbacks(PortugueseBrazil, Portuguese, English);
+   * </pre>
+   *
+   * <p>Chains are merged into a single table per Language whenever the LanguagePackage is loaded,
+   * so a lookup does not walk the chain. Chains are not transitive: the chain of a fallback is not
+   * followed.
+   *
+   * @param language The Language to set the chain for.
+   * @param fallbacks The Languages to fall back to, in order. Set none to remove the chain.
+   */
+  public synchronized void setFallbacks(@NotNull Language language, Language... fallbacks) {
+    PackSnapshot snapshot = this.snapshot;
+    Map<Language, List<Language>> mapFallbacks = new HashMap<>(snapshot.getFallbacks());
+    if (fallbacks == null || fallbacks.length == 0) {
+      mapFallbacks.remove(language);
+    } else {
+      List<Language> chain = new ArrayList<>();
+      for (Language fallback : fallbacks) {
+        if (fallback != null && fallback != language && !chain.contains(fallback)) {
+          chain.add(fallback);
         }
       }
+      mapFallbacks.put(language, Collections.unmodifiableList(chain));
+    }
+    this.snapshot =
+        new PackSnapshot(
+            snapshot.getLanguageFiles(),
+            snapshot.getAppendedPackages(),
+            mapFallbacks,
+            snapshot.getMetrics());
+    checkReferences(snapshot, this.snapshot);
+  }
+
+  /**
+   * Enables metrics for the LanguagePackage. Any metrics recorded before are discarded.
+   *
+   * @return Returns the metrics, to take snapshots of.
+   */
+  @NotNull
+  public synchronized PackMetrics enableMetrics() {
+    PackMetrics metrics = new PackMetrics();
+    setMetrics(metrics);
+    return metrics;
+  }
+
+  /** Disables metrics for the LanguagePackage. */
+  public synchronized void disableMetrics() {
+    setMetrics(null);
+  }
+
+  /** @return Returns the metrics of the LanguagePackage. If disabled, null is returned. */
+  @Nullable
+  public PackMetrics getMetrics() {
+    return snapshot.getMetrics();
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param metrics The metrics to record with. Set to null to disable metrics.
+   */
+  private void setMetrics(PackMetrics metrics) {
+    PackSnapshot snapshot = this.snapshot;
+    this.snapshot =
+        new PackSnapshot(
+            snapshot.getLanguageFiles(),
+            snapshot.getAppendedPackages(),
+            snapshot.getFallbacks(),
+            metrics);
+  }
+
+  /**
+   * Enables lazy loading of Languages, without unloading them once they are loaded.
+   *
+   * @see #enableLazyLoading(long)
+   */
+  public void enableLazyLoading() {
+    enableLazyLoading(0);
+  }
+
+  /**
+   * Enables lazy loading of Languages. The directory is indexed when the LanguagePackage is
+   * loaded, and the LanguageFile of a Language is only read once the Language is first requested,
+   * along with the Languages of its fallback chain. Languages that are loaded already stay loaded.
+   *
+   * <p>If an idle time is set, Languages that are not requested for that time are unloaded, and
+   * read again once they are requested again. A Language in the fallback chain of a Language that
+   * is requested is not unloaded.
+   *
+   * <p>NOTE: The first request for a Language reads its files on the calling thread. Lookups of
+   * Languages that are loaded are never blocked.
+   *
+   * @param idleTime The time, in milliseconds, before a Language that is not requested is
+   *     unloaded. Set to 0 to never unload Languages.
+   */
+  public synchronized void enableLazyLoading(long idleTime) {
+    if (idleTime < 0) {
+      throw new IllegalArgumentException("Idle time cannot be negative: " + idleTime);
+    }
+    LazyLanguages previous = this.lazyLanguages;
+    if (previous != null) previous.close();
+    LazyLanguages lazyLanguages = new LazyLanguages(getPackageName(), idleTime);
+    this.lazyLanguages = lazyLanguages;
+    // Index the Languages of the package for the new state.
+    setDirectoryIndex(getDirectoryIndex());
+    lazyLanguages.start(() -> unloadIdle(lazyLanguages));
+  }
+
+  /**
+   * Disables lazy loading of Languages. Every Language that is not loaded yet is loaded before
+   * this returns.
+   */
+  public synchronized void disableLazyLoading() {
+    LazyLanguages lazyLanguages = this.lazyLanguages;
+    if (lazyLanguages == null) return;
+    lazyLanguages.close();
+    loadLanguages(lazyLanguages.getLanguages());
+    this.lazyLanguages = null;
+  }
+
+  /** @return Returns true if Languages are loaded once they are first requested. */
+  public boolean isLazyLoading() {
+    return lazyLanguages != null;
+  }
+
+  /** @return Returns the Languages that are loaded. */
+  @NotNull
+  public Set<Language> getLoadedLanguages() {
+    return snapshot.getLanguageFiles().keySet();
+  }
+
+  /**
+   * Sets whether the entries of LanguageFiles are stored compactly. Compact entries are held as
+   * text in a single Array for each LanguageFile, and each entry is compiled the first time that
+   * it is looked up. This uses less memory for packages with many entries that are seldom used, at
+   * the cost of compiling each entry on its first lookup. Static entries stored compactly are not
+   * folded ahead of time, and are rendered on each call as any other entry.
+   *
+   * <p>NOTE: The setting applies to LanguageFiles loaded after it is set. Call {@link #load()} to
+   * apply it to the loaded LanguageFiles.
+   *
+   * @param compactStorage Set to true to store entries compactly.
+   */
+  public void setCompactStorage(boolean compactStorage) {
+    this.compactStorage = compactStorage;
+  }
+
+  /** @return Returns true if the entries of LanguageFiles are stored compactly. */
+  public boolean isCompactStorage() {
+    return this.compactStorage;
+  }
+
+  /**
+   * @param language The Language to look up in. If null, English is used.
+   * @return Returns the current loaded state of the LanguagePackage. If Languages are loaded
+   *     lazily, the Language and its fallback chain are loaded first.
+   */
+  @NotNull
+  PackSnapshot getSnapshot(Language language) {
+    return getSnapshot(snapshot, language);
+  }
+
+  /**
+   * @param snapshot The state to look up in.
+   * @param language The Language to look up in. If null, English is used.
+   * @return Returns the state given. If Languages are loaded lazily and the state is missing the
+   *     Language or any of its fallback chain, they are loaded, and the new state is returned.
+   */
+  @NotNull
+  PackSnapshot getSnapshot(@NotNull PackSnapshot snapshot, Language language) {
+    LazyLanguages lazyLanguages = this.lazyLanguages;
+    if (lazyLanguages == null) return snapshot;
+    if (language == null) language = Language.English;
+    lazyLanguages.request(language);
+    if (getMissing(snapshot, lazyLanguages, language).isEmpty()) return snapshot;
+    return loadLazily(language);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param language The Language requested.
+   * @return Returns the current state, with the Language and its fallback chain loaded.
+   */
+  private synchronized PackSnapshot loadLazily(Language language) {
+    LazyLanguages lazyLanguages = this.lazyLanguages;
+    if (lazyLanguages != null) {
+      loadLanguages(getMissing(snapshot, lazyLanguages, language));
+    }
+    return this.snapshot;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Loads Languages that are not loaded, and replaces the current state once they are.
+   *
+   * @param languages The Languages to load. Languages that are loaded already are skipped.
+   */
+  private void loadLanguages(Collection<Language> languages) {
+    PackSnapshot snapshot = this.snapshot;
+    Map<Language, LanguageFile> map = new HashMap<>(snapshot.getLanguageFiles());
+    DirectoryIndex directoryIndex = getDirectoryIndex();
+    boolean loaded = false;
+    for (Language language : languages) {
+      if (map.containsKey(language)) continue;
+      LanguageFile languageFile =
+          loadLanguage(language, directoryIndex, snapshot.getAppendedPackages());
+      if (languageFile != null) {
+        map.put(language, languageFile);
+        loaded = true;
+      }
+    }
+    if (!loaded) return;
+    this.snapshot =
+        new PackSnapshot(
+            map, snapshot.getAppendedPackages(), snapshot.getFallbacks(), snapshot.getMetrics());
+    checkReferences(snapshot, this.snapshot);
+    writeCache();
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Unloads the Languages that are not requested for the idle time.
+   *
+   * @param lazyLanguages The lazy loading state that is sweeping.
+   */
+  private synchronized void unloadIdle(LazyLanguages lazyLanguages) {
+    if (this.lazyLanguages != lazyLanguages) return;
+    PackSnapshot snapshot = this.snapshot;
+    Set<Language> idle = lazyLanguages.sweep(snapshot);
+    if (idle.isEmpty()) return;
+    Map<Language, LanguageFile> map = new HashMap<>(snapshot.getLanguageFiles());
+    map.keySet().removeAll(idle);
+    this.snapshot =
+        new PackSnapshot(
+            map, snapshot.getAppendedPackages(), snapshot.getFallbacks(), snapshot.getMetrics());
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param snapshot The state to test.
+   * @param lazyLanguages The index of the directory.
+   * @param language The Language requested.
+   * @return Returns the Language and the Languages of its fallback chain that have a file, but
+   *     are not loaded in the state.
+   */
+  private static List<Language> getMissing(
+      PackSnapshot snapshot, LazyLanguages lazyLanguages, Language language) {
+    List<Language> missing = Collections.emptyList();
+    if (snapshot.getLanguageFile(language) == null && lazyLanguages.isIndexed(language)) {
+      missing = new ArrayList<>();
+      missing.add(language);
+    }
+    Map<Language, List<Language>> mapFallbacks = snapshot.getFallbacks();
+    List<Language> chain = mapFallbacks.isEmpty() ? null : mapFallbacks.get(language);
+    if (chain == null) return missing;
+    for (Language fallback : chain) {
+      if (snapshot.getLanguageFile(fallback) == null && lazyLanguages.isIndexed(fallback)) {
+        if (missing.isEmpty()) missing = new ArrayList<>();
+        missing.add(fallback);
+      }
+    }
+    return missing;
+  }
+
+  /**
+   * @param language The Language of the chain.
+   * @return Returns the fallback chain of the Language, in order. If none is set, an empty List is
+   *     returned.
+   */
+  @NotNull
+  public List<Language> getFallbacks(@NotNull Language language) {
+    List<Language> chain = snapshot.getFallbacks().get(language);
+    return chain != null ? chain : Collections.<Language>emptyList();
+  }
+
+  /**
+   * @param key The id of the entry.
+   * @param language The Language of the entry.
+   * @return Returns the ids of every entry that the entry references in the Language, directly or
+   *     through other entries. An entry that references itself in a loop is included. If the entry
+   *     is not defined, an empty Set is returned.
+   */
+  @NotNull
+  public Set<String> getDependencies(@NotNull String key, @NotNull Language language) {
+    LanguageFile file = getSnapshot(language).getLookup(language);
+    if (file == null) return Collections.emptySet();
+    return file.getGraph().getDependencies(EntryKey.toId(key));
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Builds the graph of references between the entries of each Language that changed, and
+   * reports entries that reference each other in a loop, or that nest too deeply to be rendered.
+   *
+   * @param previous The snapshot that was replaced.
+   * @param snapshot The snapshot that replaced it.
+   */
+  private static void checkReferences(PackSnapshot previous, PackSnapshot snapshot) {
+    for (Language language : Language.values()) {
+      LanguageFile file = snapshot.getLookup(language);
+      if (file == null) continue;
+      EntryGraph graph = file.getGraph();
+      LanguageFile previousFile = previous.getLookup(language);
+      if (previousFile != null && previousFile.getGraph() == graph) continue;
+      for (List<String> cycle : graph.getCycles()) {
+        System.out.println(
+            "WARNING: Entries reference each other in a loop in Language '"
+                + language.name()
+                + "': "
+                + cycle
+                + (graph.isLooping(cycle.get(0))
+                    ? ". An entry is not rendered inside itself."
+                    : ". The loop is bounded by the maximum depth of "
+                        + Resolver.MAX_DEPTH
+                        + "."));
+      }
+      List<String> deep = graph.getDeeperThan(Resolver.MAX_DEPTH);
+      if (!deep.isEmpty()) {
+        System.out.println(
+            "WARNING: "
+                + deep.size()
+                + " entries in Language '"
+                + language.name()
+                + "' nest more than "
+                + Resolver.MAX_DEPTH
+                + " entries deep, such as '"
+                + deep.get(0)
+                + "'. Entries nested deeper are not rendered.");
+      }
+    }
+  }
+
+  /**
+   * Starts watching the directory for changes to the files of the LanguagePackage. Once the files
+   * stop changing for the debounce period, the Languages of the changed files are reloaded.
+   *
+   * @param debounce The time, in milliseconds, to wait for further changes before reloading.
+   * @return Returns the watcher. Close it to stop watching.
+   * @throws IOException Thrown if the directory cannot be watched.
+   */
+  @NotNull
+  public LanguageWatcher watch(long debounce) throws IOException {
+    LanguageWatcher watcher = new LanguageWatcher(this, debounce);
+    watcher.start();
+    return watcher;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Loads the LanguageFile of a Language, and appends the files of the appended packages.
+   *
+   * @param language The Language to load.
+   * @param directoryIndex The index of the directory.
+   * @param appendedPackages The names of the packages appended, in order.
+   * @return Returns the loaded LanguageFile. If the LanguagePackage has no file for the Language,
+   *     null is returned.
+   */
+  private LanguageFile loadLanguage(
+      Language language, DirectoryIndex directoryIndex, List<String> appendedPackages) {
+    File file = directoryIndex.getFile(getPackageName(), language);
+    if (file == null) return null;
+    LanguageFile languageFile = new LanguageFile(file, language);
+    languageFile.setCompact(compactStorage);
+    languageFile.load(readFile(file));
+    for (String appendedPackage : appendedPackages) {
+      File appended = directoryIndex.getFile(appendedPackage, language);
+      if (appended != null) {
+        languageFile.append(readFile(appended));
+      }
+    }
+    return languageFile;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @return Returns the index of the directory, indexing it if it is not indexed yet.
+   */
+  private DirectoryIndex getDirectoryIndex() {
+    DirectoryIndex directoryIndex = this.directoryIndex;
+    if (directoryIndex == null) {
+      DirectoryIndex listed = DirectoryIndex.of(directory);
+      directoryIndex = listed != null ? listed : DirectoryIndex.EMPTY;
+      setDirectoryIndex(directoryIndex);
+    }
+    return directoryIndex;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Sets the index of the directory, and the Languages that can be loaded lazily with it.
+   *
+   * @param directoryIndex The index of the directory.
+   */
+  private void setDirectoryIndex(DirectoryIndex directoryIndex) {
+    this.directoryIndex = directoryIndex;
+    LazyLanguages lazyLanguages = this.lazyLanguages;
+    if (lazyLanguages != null) {
+      lazyLanguages.index(directoryIndex.getFiles(getPackageName()).keySet());
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Appends the files of a language package to copies of the LanguageFiles in a Map. A file
+   * for a Language that is not in the Map is skipped: either the LanguagePackage has no file for
+   * it, or it is loaded lazily, and appends the package once it is loaded.
+   *
+   * @param map The Map for LanguageFiles to append to.
+   * @param packageName The name of the package to append.
+   */
+  private void append(Map<Language, LanguageFile> map, String packageName) {
+    for (Map.Entry<Language, File> entry : getDirectoryIndex().getFiles(packageName).entrySet()) {
+      LanguageFile languageFile = map.get(entry.getKey());
+      if (languageFile == null) continue;
+      languageFile = languageFile.copy();
+      languageFile.append(readFile(entry.getValue()));
+      map.put(entry.getKey(), languageFile);
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Reads the entries of a language file, using the cache if one is set, and shares its
+   * Strings if deduplication is enabled.
+   *
+   * @param file The language file to read.
+   * @return Returns the entries read from the file.
+   */
+  private Map<String, Object> readFile(File file) {
+    PackCache cache = this.cache;
+    Map<String, Object> entries = cache != null ? cache.read(file) : LanguageFile.read(file);
+    InternTable internTable = this.internTable;
+    return internTable != null ? internTable.intern(entries) : entries;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Writes the cache, if one is set and any file was read that was not cached.
+   */
+  private void writeCache() {
+    PackCache cache = this.cache;
+    if (cache == null) return;
+    try {
+      cache.write();
+    } catch (IOException e) {
+      System.out.println(
+          "WARNING: Failed to write cache file: " + cache.getFile().getPath() + " (" + e + ")");
     }
   }
 
@@ -98,9 +741,34 @@ public class LanguagePackage {
    */
   public TextComponent[] getTexts(
       @NotNull String key, @NotNull Language language, EntryField... fields) {
-    String string = getString(key, language, fields);
+    return getTexts(key, language, FieldSet.of(fields));
+  }
+
+  /**
+   * @param key The key of the field.
+   * @param language The language to use.
+   * @param fields Additional field(s) defined. (or overriding the language package)
+   * @return Returns an array of TextComponents for the string.
+   */
+  public TextComponent[] getTexts(
+      @NotNull String key, @NotNull Language language, @NotNull FieldSet fields) {
+    PackMetrics metrics = snapshot.getMetrics();
+    if (metrics == null) {
+      return toTexts(getString(key, language, fields));
+    }
+    long start = System.nanoTime();
+    TextComponent[] texts = toTexts(getString(key, language, fields));
+    metrics.recordTexts(System.nanoTime() - start);
+    return texts;
+  }
+
+  /**
+   * @param string The processed String to convert. Its color codes are already translated.
+   * @return Returns an array of TextComponents for the string. If the string is null, null is
+   *     returned.
+   */
+  static TextComponent[] toTexts(String string) {
     if (string == null) return null;
-    string = ChatColor.translateAlternateColorCodes('&', string);
     TextComponent[] textComponents;
     if (string.contains("[@")) {
       textComponents = getTexts(string);
@@ -112,58 +780,259 @@ public class LanguagePackage {
   }
 
   /**
-   * Sends a processed String Message to a Player with a English Language, and additionally defined
-   * EntryFields.
+   * Sends a processed String Message to a Player with a English Language, and additionally defined
+   * EntryFields.
+   *
+   * @param player The Player to send the String message.
+   * @param key The String identity of the entry to process.
+   * @param entries The EntryList Array of any additional entries to process with the String
+   *     message.
+   */
+  public void sendMessage(Player player, String key, EntryField... entries) {
+    sendMessage(player, key, FieldSet.of(entries));
+  }
+
+  /**
+   * Sends a processed String Message to a Player with a English Language, and additionally defined
+   * EntryFields.
+   *
+   * @param player The Player to send the String message.
+   * @param key The String identity of the entry to process.
+   * @param fields The EntryFields to process the String message with.
+   */
+  public void sendMessage(Player player, String key, @NotNull FieldSet fields) {
+    if (player == null) {
+      throw new IllegalArgumentException("Player given is null.");
+    }
+    if (key == null || key.isEmpty()) {
+      throw new IllegalArgumentException("Key given is null or empty.");
+    }
+    if (!player.isOnline()) {
+      return;
+    }
+    String result = this.getString(key, fields);
+    if (result != null) {
+      sendMessage(player, toLines(result));
+    }
+  }
+
+  /**
+   * Sends a processed String Message to a Player with a given Language, and additionally defined
+   * EntryFields.
+   *
+   * @param player The Player to send the String message.
+   * @param key The String identity of the entry to process.
+   * @param language The Language to use for the Player.
+   * @param entries The EntryList Array of any additional entries to process with the String
+   *     message.
+   */
+  public void sendMessage(
+      @NotNull Player player,
+      @NotNull String key,
+      @NotNull Language language,
+      EntryField... entries) {
+    sendMessage(player, key, language, FieldSet.of(entries));
+  }
+
+  /**
+   * Sends a processed String Message to a Player with a given Language, and additionally defined
+   * EntryFields.
+   *
+   * @param player The Player to send the String message.
+   * @param key The String identity of the entry to process.
+   * @param language The Language to use for the Player.
+   * @param fields The EntryFields to process the String message with.
+   */
+  public void sendMessage(
+      @NotNull Player player,
+      @NotNull String key,
+      @NotNull Language language,
+      @NotNull FieldSet fields) {
+    if (player == null) {
+      throw new IllegalArgumentException("Player given is null.");
+    }
+    if (key == null || key.isEmpty()) {
+      throw new IllegalArgumentException("Key given is null or empty.");
+    }
+    if (!player.isOnline()) {
+      return;
+    }
+    String result = this.getString(key, language, fields);
+    if (result != null) {
+      sendMessage(player, toLines(result));
+    }
+  }
+
+  /**
+   * Sends a processed String Message to each recipient in their own Language. Recipients are
+   * grouped by Language, and the message is rendered once per Language, not once per recipient.
+   * Players that are offline are skipped.
+   *
+   * @param recipients The recipients of the message.
+   * @param key The String identity of the entry to process.
+   * @param entries The EntryList Array of any additional entries to process with the String
+   *     message.
+   * @see #getLanguage(CommandSender)
+   */
+  public void broadcastMessage(
+      @NotNull Collection<? extends CommandSender> recipients,
+      @NotNull String key,
+      EntryField... entries) {
+    broadcastMessage(recipients, LanguagePackage::getLanguage, key, entries);
+  }
+
+  /**
+   * Sends a processed String Message to each recipient in their own Language. Recipients are
+   * grouped by Language, and the message is rendered once per Language, not once per recipient.
+   * Players that are offline are skipped.
    *
-   * @param player The Player to send the String message.
+   * @param recipients The recipients of the message.
+   * @param languages The function returning the Language of a recipient.
    * @param key The String identity of the entry to process.
    * @param entries The EntryList Array of any additional entries to process with the String
    *     message.
+   * @param <T> The type of recipient.
    */
-  public void sendMessage(Player player, String key, EntryField... entries) {
-    if (player == null) {
-      throw new IllegalArgumentException("Player given is null.");
-    }
+  public <T extends CommandSender> void broadcastMessage(
+      @NotNull Collection<? extends T> recipients,
+      @NotNull Function<? super T, Language> languages,
+      @NotNull String key,
+      EntryField... entries) {
     if (key == null || key.isEmpty()) {
       throw new IllegalArgumentException("Key given is null or empty.");
     }
-    if (!player.isOnline()) {
-      return;
-    }
-    String result = this.getString(key, entries);
-    if (result != null) {
-      sendMessage(player, toStringArray(result));
+    PackSnapshot snapshot = this.snapshot;
+    EntryKey entryKey = EntryKey.of(key);
+    FieldSet fields = FieldSet.of(entries);
+    Map<Language, String[]> mapLines = new HashMap<>();
+    for (T recipient : recipients) {
+      if (recipient instanceof Player && !((Player) recipient).isOnline()) continue;
+      Language language = languages.apply(recipient);
+      if (language == null) language = Language.English;
+      String[] lines = mapLines.get(language);
+      if (lines == null && !mapLines.containsKey(language)) {
+        lines = toLines(getString(snapshot, entryKey, language, fields));
+        mapLines.put(language, lines);
+      }
+      if (lines != null) {
+        recipient.sendMessage(lines);
+      }
     }
   }
 
   /**
-   * Sends a processed String Message to a Player with a given Language, and additionally defined
-   * EntryFields.
+   * Sends processed TextComponents to each Player in their own Language. Players are grouped by
+   * Language, and the components are built once per Language, not once per Player. Players that
+   * are offline are skipped.
    *
-   * @param player The Player to send the String message.
+   * @param players The Players to send the components to.
    * @param key The String identity of the entry to process.
-   * @param language The Language to use for the Player.
    * @param entries The EntryList Array of any additional entries to process with the String
    *     message.
+   * @see #getLanguage(CommandSender)
    */
-  public void sendMessage(
-      @NotNull Player player,
+  public void broadcastTexts(
+      @NotNull Collection<? extends Player> players, @NotNull String key, EntryField... entries) {
+    broadcastTexts(players, LanguagePackage::getLanguage, key, entries);
+  }
+
+  /**
+   * Sends processed TextComponents to each Player in their own Language. Players are grouped by
+   * Language, and the components are built once per Language, not once per Player. Players that
+   * are offline are skipped.
+   *
+   * @param players The Players to send the components to.
+   * @param languages The function returning the Language of a Player.
+   * @param key The String identity of the entry to process.
+   * @param entries The EntryList Array of any additional entries to process with the String
+   *     message.
+   * @param <T> The type of Player.
+   */
+  public <T extends Player> void broadcastTexts(
+      @NotNull Collection<? extends T> players,
+      @NotNull Function<? super T, Language> languages,
       @NotNull String key,
-      @NotNull Language language,
       EntryField... entries) {
-    if (player == null) {
-      throw new IllegalArgumentException("Player given is null.");
-    }
     if (key == null || key.isEmpty()) {
       throw new IllegalArgumentException("Key given is null or empty.");
     }
-    if (!player.isOnline()) {
-      return;
+    PackSnapshot snapshot = this.snapshot;
+    EntryKey entryKey = EntryKey.of(key);
+    FieldSet fields = FieldSet.of(entries);
+    Map<Language, TextComponent[]> mapTexts = new HashMap<>();
+    for (T player : players) {
+      if (!player.isOnline()) continue;
+      Language language = languages.apply(player);
+      if (language == null) language = Language.English;
+      TextComponent[] texts = mapTexts.get(language);
+      if (texts == null && !mapTexts.containsKey(language)) {
+        texts = toTexts(getString(snapshot, entryKey, language, fields));
+        mapTexts.put(language, texts);
+      }
+      if (texts != null) {
+        player.spigot().sendMessage(texts);
+      }
     }
-    String result = this.getString(key, language, entries);
-    if (result != null) {
-      sendMessage(player, toStringArray(result));
+  }
+
+  /**
+   * Resolves the Language of a CommandSender. For Players, the client's locale is used, such as
+   * 'en_us'. All other senders, and Players with a locale that has no Language, use English.
+   *
+   * @param sender The CommandSender to resolve.
+   * @return Returns the Language of the CommandSender.
+   */
+  @NotNull
+  public static Language getLanguage(@NotNull CommandSender sender) {
+    if (sender instanceof Player) {
+      Language language = Language.getLanguageWithLocale(((Player) sender).getLocale());
+      if (language != null) return language;
+    }
+    return Language.English;
+  }
+
+  /**
+   * Renders an entry against a snapshot, using the render cache if it is enabled.
+   *
+   * @param snapshot The snapshot to render.
+   * @param key The pre-resolved identity of the entry to process.
+   * @param language The Language to search for the String entry primarily.
+   * @param fields Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns a processed String in the given Language. If the LanguageFile does not contain
+   *     an entry, null is returned.
+   */
+  String getString(PackSnapshot snapshot, EntryKey key, Language language, FieldSet fields) {
+    if (fields == null) fields = FieldSet.EMPTY;
+    snapshot = getSnapshot(snapshot, language);
+    PackMetrics metrics = snapshot.getMetrics();
+    if (metrics == null) {
+      return render(snapshot, key, language, fields);
+    }
+    long start = System.nanoTime();
+    metrics.beginRequest();
+    String value = render(snapshot, key, language, fields);
+    metrics.endRequest(key.getId(), language, value != null, System.nanoTime() - start);
+    return value;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Renders an entry against a snapshot, using the render cache if it is enabled.
+   *
+   * @param snapshot The snapshot to render.
+   * @param key The pre-resolved identity of the entry to process.
+   * @param language The Language to search for the String entry primarily.
+   * @param fields Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns a processed String in the given Language. If the LanguageFile does not contain
+   *     an entry, null is returned.
+   */
+  private String render(PackSnapshot snapshot, EntryKey key, Language language, FieldSet fields) {
+    RenderCache renderCache = this.renderCache;
+    if (renderCache != null) {
+      return renderCache.getString(snapshot, key, language, fields);
     }
+    return snapshot.getString(key, language, fields);
   }
 
   /**
@@ -193,7 +1062,7 @@ public class LanguagePackage {
    *     contain an entry, null is returned.
    */
   public String getString(@NotNull String key) {
-    return getString(key, Language.English, new EntryField[] {});
+    return getString(key, Language.English, FieldSet.EMPTY);
   }
 
   /**
@@ -204,9 +1073,23 @@ public class LanguagePackage {
    *     an entry, null is returned.
    */
   public String getString(@NotNull String key, @NotNull Language language, EntryField... entries) {
-    String value = getString(key, language);
-    value = processString(value, this, language, entries);
-    return value != null ? ChatColor.translateAlternateColorCodes('&', value) : null;
+    return getString(key, language, FieldSet.of(entries));
+  }
+
+  /**
+   * @param key The String identity of the entry to process.
+   * @param language The Language to search for the String entry primarily.
+   * @param fields Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns a processed String in the given Language. If the LanguageFile does not contain
+   *     an entry, null is returned.
+   */
+  public String getString(
+      @NotNull String key, @NotNull Language language, @NotNull FieldSet fields) {
+    PackSnapshot snapshot = getSnapshot(language);
+    if (renderCache != null || snapshot.getMetrics() != null) {
+      return getString(snapshot, EntryKey.of(key), language, fields);
+    }
+    return snapshot.getString(key, language, fields);
   }
 
   /**
@@ -216,7 +1099,17 @@ public class LanguagePackage {
    *     contain an entry, null is returned.
    */
   public String getString(@NotNull String key, EntryField... entries) {
-    return getString(key, Language.English, entries);
+    return getString(key, Language.English, FieldSet.of(entries));
+  }
+
+  /**
+   * @param key The String identity of the entry to process.
+   * @param fields Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns a processed String in the English LanguageFile. If the LanguageFile does not
+   *     contain an entry, null is returned.
+   */
+  public String getString(@NotNull String key, @NotNull FieldSet fields) {
+    return getString(key, Language.English, fields);
   }
 
   /**
@@ -226,23 +1119,71 @@ public class LanguagePackage {
    *     an entry, null is returned.
    */
   public String getString(@NotNull String key, @NotNull Language language) {
-    String value = null;
-    LanguageFile file = mapLanguageFiles.get(language);
-    if (file != null) {
-      value = file.get(key);
-    }
-    return value;
+    return getSnapshot(language).getRawString(key, language);
   }
 
   /**
    * @param key The String identity of the entry.
-   * @param language The language specified.
-   * @return Returns the unprocessed entry from a language file.
+   * @param language The Language to search for the entry.
+   * @return Returns the compiled entry in the given Language. If the LanguageFile does not contain
+   *     an entry, null is returned.
+   */
+  public Template getTemplate(@NotNull String key, @NotNull Language language) {
+    return getSnapshot(language).getTemplate(key, language);
+  }
+
+  /**
+   * @param key The pre-resolved identity of the entry to process.
+   * @param language The Language to search for the String entry primarily.
+   * @param entries Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns a processed String in the given Language. If the LanguageFile does not contain
+   *     an entry, null is returned.
+   */
+  public String getString(
+      @NotNull EntryKey key, @NotNull Language language, EntryField... entries) {
+    return getString(snapshot, key, language, FieldSet.of(entries));
+  }
+
+  /**
+   * @param key The pre-resolved identity of the entry to process.
+   * @param language The Language to search for the String entry primarily.
+   * @param fields Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns a processed String in the given Language. If the LanguageFile does not contain
+   *     an entry, null is returned.
+   */
+  public String getString(
+      @NotNull EntryKey key, @NotNull Language language, @NotNull FieldSet fields) {
+    return getString(snapshot, key, language, fields);
+  }
+
+  /**
+   * @param key The pre-resolved identity of the entry to process.
+   * @param entries Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns a processed String in the English LanguageFile. If the LanguageFile does not
+   *     contain an entry, null is returned.
+   */
+  public String getString(@NotNull EntryKey key, EntryField... entries) {
+    return getString(snapshot, key, Language.English, FieldSet.of(entries));
+  }
+
+  /**
+   * @param key The pre-resolved identity of the entry to process.
+   * @param fields Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns a processed String in the English LanguageFile. If the LanguageFile does not
+   *     contain an entry, null is returned.
    */
-  private String getFileString(@NotNull String key, @NotNull Language language) {
-    LanguageFile fileDefault = mapLanguageFiles.get(Language.English);
-    LanguageFile file = mapLanguageFiles.get(language);
-    return file != null ? file.get(key) : fileDefault != null ? fileDefault.get(key) : null;
+  public String getString(@NotNull EntryKey key, @NotNull FieldSet fields) {
+    return getString(snapshot, key, Language.English, fields);
+  }
+
+  /**
+   * @param key The pre-resolved identity of the entry.
+   * @param language The Language to search for the entry.
+   * @return Returns the compiled entry in the given Language. If the LanguageFile does not contain
+   *     an entry, null is returned.
+   */
+  public Template getTemplate(@NotNull EntryKey key, @NotNull Language language) {
+    return getSnapshot(language).getTemplate(key, language);
   }
 
   /**
@@ -290,6 +1231,177 @@ public class LanguagePackage {
     return toList(getString(key, language));
   }
 
+  /**
+   * Renders an entry into an Appendable, such as a StringBuilder or a Writer, instead of returning
+   * a String.
+   *
+   * @param out The Appendable to write the processed entry to.
+   * @param key The String identity of the entry to process.
+   * @param language The Language to search for the String entry primarily.
+   * @param entries Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns true if the entry is written. If the LanguageFile does not contain an entry,
+   *     nothing is written and false is returned.
+   * @throws IOException Thrown if the Appendable fails to write.
+   */
+  public boolean appendString(
+      @NotNull Appendable out,
+      @NotNull String key,
+      @NotNull Language language,
+      EntryField... entries)
+      throws IOException {
+    return appendString(out, key, language, FieldSet.of(entries));
+  }
+
+  /**
+   * Renders an entry into an Appendable, such as a StringBuilder or a Writer, instead of returning
+   * a String.
+   *
+   * @param out The Appendable to write the processed entry to.
+   * @param key The String identity of the entry to process.
+   * @param language The Language to search for the String entry primarily.
+   * @param fields Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns true if the entry is written. If the LanguageFile does not contain an entry,
+   *     nothing is written and false is returned.
+   * @throws IOException Thrown if the Appendable fails to write.
+   */
+  public boolean appendString(
+      @NotNull Appendable out,
+      @NotNull String key,
+      @NotNull Language language,
+      @NotNull FieldSet fields)
+      throws IOException {
+    String value = getString(snapshot, EntryKey.of(key), language, fields);
+    if (value == null) return false;
+    out.append(value);
+    return true;
+  }
+
+  /**
+   * Renders an entry, and hands each of its lines to a consumer, such as the lore of an item or
+   * the lines of a scoreboard. The lines are the same as {@link #getStringList(String, Language,
+   * EntryField...)}, without a List being built.
+   *
+   * @param lines The consumer of each processed line, in order.
+   * @param key The String identity of the entry to process.
+   * @param language The Language to search for the String entry primarily.
+   * @param entries Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns true if the entry is found. If the LanguageFile does not contain an entry, no
+   *     line is consumed and false is returned.
+   */
+  public boolean forEachLine(
+      @NotNull Consumer<? super String> lines,
+      @NotNull String key,
+      @NotNull Language language,
+      EntryField... entries) {
+    return forEachLine(lines, key, language, FieldSet.of(entries));
+  }
+
+  /**
+   * Renders an entry, and hands each of its lines to a consumer, such as the lore of an item or
+   * the lines of a scoreboard. The lines are the same as {@link #getStringList(String, Language,
+   * EntryField...)}, without a List being built.
+   *
+   * @param lines The consumer of each processed line, in order.
+   * @param key The String identity of the entry to process.
+   * @param language The Language to search for the String entry primarily.
+   * @param fields Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns true if the entry is found. If the LanguageFile does not contain an entry, no
+   *     line is consumed and false is returned.
+   */
+  public boolean forEachLine(
+      @NotNull Consumer<? super String> lines,
+      @NotNull String key,
+      @NotNull Language language,
+      @NotNull FieldSet fields) {
+    String value = getString(snapshot, EntryKey.of(key), language, fields);
+    if (value == null) return false;
+    forEachLine(value, lines);
+    return true;
+  }
+
+  /** @return Returns the current loaded state of the LanguagePackage. */
+  @NotNull
+  PackSnapshot getSnapshot() {
+    return this.snapshot;
+  }
+
+  /**
+   * Enables caching of rendered entries. Renders are cached by entry, Language and EntryFields, up
+   * to the given capacity, after which the least recently used render is evicted. Entries that
+   * reference a StringPool are never cached.
+   *
+   * @param capacity The maximum amount of renders to cache.
+   * @return Returns the new cache, to read its counters from.
+   */
+  @NotNull
+  public RenderCache enableRenderCache(int capacity) {
+    RenderCache renderCache = new RenderCache(capacity);
+    this.renderCache = renderCache;
+    return renderCache;
+  }
+
+  /** Disables caching of rendered entries. */
+  public void disableRenderCache() {
+    this.renderCache = null;
+  }
+
+  /** @return Returns the cache of rendered entries. If caching is disabled, null is returned. */
+  @Nullable
+  public RenderCache getRenderCache() {
+    return this.renderCache;
+  }
+
+  /**
+   * Enables sharing of equal Strings between language files as they are read. Entries with the
+   * same value in several Languages or appended packages then share a single Template, and equal
+   * ids and literal text share a single String.
+   *
+   * <p>NOTE: Files read before this is called are not shared. Call {@link #load()} to share the
+   * Strings of the loaded LanguageFiles.
+   *
+   * @return Returns the new table, to read the bytes saved from.
+   */
+  @NotNull
+  public InternTable enableDeduplication() {
+    InternTable internTable = new InternTable();
+    this.internTable = internTable;
+    return internTable;
+  }
+
+  /** Disables sharing of equal Strings between language files read from now on. */
+  public void disableDeduplication() {
+    this.internTable = null;
+  }
+
+  /**
+   * @return Returns the table that Strings read are shared through. If sharing is disabled, null
+   *     is returned.
+   */
+  @Nullable
+  public InternTable getInternTable() {
+    return this.internTable;
+  }
+
+  /**
+   * Sets the binary cache file for the LanguagePackage. When set, language files are read from the
+   * cache while they are unchanged, skipping the YAML parser and the compilation of their entries.
+   * The cache is written after each load, reload or append that read a changed file.
+   *
+   * @param file The cache file to use. Set to null to stop using a cache.
+   */
+  public void setCacheFile(@Nullable File file) {
+    this.cache = file != null ? new PackCache(file, directory) : null;
+  }
+
+  /**
+   * @return Returns the binary cache file of the LanguagePackage. If none is set, null is returned.
+   */
+  @Nullable
+  public File getCacheFile() {
+    PackCache cache = this.cache;
+    return cache != null ? cache.getFile() : null;
+  }
+
   /** @return Returns the File Object of the directory where the LanguageFiles are located. */
   public File getDirectory() {
     return this.directory;
@@ -331,6 +1443,9 @@ public class LanguagePackage {
    * EntryField's passed to this method override entries already defined in the LanguagePackage
    * provided.
    *
+   * <p>NOTE: The String is compiled into a {@link Template} on every call. Entries stored in
+   * LanguageFiles are compiled once when added, and should be rendered through their Templates.
+   *
    * @param value The String to be processed.
    * @param languagePackage The LanguagePackage library to reference for any EntryField's not
    *     defined that are requested.
@@ -344,112 +1459,56 @@ public class LanguagePackage {
   public static String processString(
       String value, LanguagePackage languagePackage, Language language, EntryField... entries) {
     if (value == null) return null;
-    if (languagePackage != null && language == null) language = Language.English;
-    StringBuilder valueProcessed = new StringBuilder();
-    boolean in = false;
-    char[] chars = value.toCharArray();
-    String key = "";
-    String valNext;
-    Map<String, String> mapCachedResults = new HashMap<>();
-    for (int index = 0; index < chars.length; index++) {
-      char charCurrent = chars[index];
-      Character charNext = index < chars.length - 1 ? chars[index + 1] : null;
-      if (in) {
-        if (charCurrent == '}' && charNext != null && charNext == '}') {
-          in = false;
-          index += 1;
-          key = key.trim();
-          boolean skip = false;
-          if (key.startsWith("if")) {
-            String[] split = key.split(":");
-            if (split.length >= 3) {
-              String condition = split[1];
-              Boolean result = calculateCondition(condition, languagePackage, language, entries);
-              // If no variable is found, the entire if block is skipped.
-              skip = result == null;
-              if (!skip) {
-                // IF : BOOLEAN : ACTION : ELSE_ACTION
-                if (split.length == 4) {
-                  key = result ? split[2] : split[3];
-                }
-                // IF : BOOLEAN : ACTION
-                else if (split.length == 3) {
-                  if (result) {
-                    key = split[2];
-                  } else {
-                    skip = true;
-                  }
-                }
-              }
-            }
-          }
-          if (!skip) {
-            valNext = mapCachedResults.get(key);
-            if (valNext == null) {
-              for (EntryField entryNext : entries) {
-                if (entryNext != null && entryNext.isKey(key)) {
-                  valNext = entryNext.getValue().toString();
-                  mapCachedResults.put(key, valNext);
-                  break;
-                }
-              }
-            }
-            if (valNext == null && languagePackage != null) {
-              valNext = languagePackage.getString(key, language, entries);
-              if (valNext != null) {
-                mapCachedResults.put(key, valNext);
-              }
-            }
-            if (valNext != null) {
-              valueProcessed.append(valNext);
-            } else {
-              valueProcessed.append(key);
-            }
-          }
-        } else {
-          key += charCurrent;
-        }
-      } else {
-        if (charCurrent == '{' && charNext != null && charNext == '{') {
-          in = true;
-          index += 1;
-          key = "";
-        } else {
-          valueProcessed.append(charCurrent);
-        }
-      }
+    PackMetrics metrics = languagePackage != null ? languagePackage.getMetrics() : null;
+    if (metrics == null) {
+      return Template.compile(value).render(languagePackage, language, entries);
     }
-    return valueProcessed.toString();
+    long start = System.nanoTime();
+    String processed = Template.compile(value).render(languagePackage, language, entries);
+    metrics.recordProcess(System.nanoTime() - start);
+    return processed;
   }
 
   /**
    * Processes a string into a series of TextComponents.
    *
+   * <p>The string is scanned once. Plain text and the operator / arguments of '[@...]' sections are
+   * buffered in two builders that are re-used for every section, and the array of components is
+   * sized from the amount of '[@' sections in the string.
+   *
    * @param string The string to process.
    * @return Returns the processed string as TextComponents.
    */
   private static TextComponent[] getTexts(@NotNull String string) {
+    int sections = 0;
+    for (int index = string.indexOf("[@"); index != -1; index = string.indexOf("[@", index + 2)) {
+      sections++;
+    }
+    // Every section adds a slot for its action, and a slot for the text that follows it.
+    TextComponent[] textComponents = new TextComponent[1 + sections * 2];
     int textIndex = 0;
-    TextComponent[] textComponents = new TextComponent[1];
-    textComponents[textIndex] = new TextComponent();
     boolean in = false;
     boolean inOperator = false;
-    StringBuilder stringBuilder = null;
+    StringBuilder text = new StringBuilder(string.length());
+    StringBuilder stringBuilder = new StringBuilder();
     String operator = null;
-    String[] args = new String[0];
-    char[] chars = string.toCharArray();
-    for (int index = 0; index < chars.length; index++) {
-      char charCurrent = chars[index];
-      Character charNext = index + 1 >= chars.length ? null : chars[index + 1];
-      if (charCurrent == '[' && charNext != null && charNext == '@') {
+    String[] args = new String[2];
+    int argCount = 0;
+    int length = string.length();
+    for (int index = 0; index < length; index++) {
+      char charCurrent = string.charAt(index);
+      if (charCurrent == '[' && index + 1 < length && string.charAt(index + 1) == '@') {
+        if (in) {
+          // An unfinished section is left as an empty slot.
+          textComponents[textIndex++] = null;
+        } else {
+          textComponents[textIndex++] = new TextComponent(text.toString());
+          text.setLength(0);
+        }
         in = true;
         inOperator = true;
-        stringBuilder = new StringBuilder();
+        stringBuilder.setLength(0);
         index++;
-        textIndex++;
-        TextComponent[] textComponentsNew = new TextComponent[textComponents.length + 1];
-        System.arraycopy(textComponents, 0, textComponentsNew, 0, textComponents.length);
-        textComponents = textComponentsNew;
         continue;
       }
       if (in) {
@@ -458,27 +1517,21 @@ public class LanguagePackage {
             throw new IllegalArgumentException("Invalid operation  format for line: " + string);
           }
           // Save the last argument.
-          String[] argsNew = new String[args.length + 1];
-          System.arraycopy(args, 0, argsNew, 0, args.length);
-          argsNew[args.length] = stringBuilder.toString();
-          args = argsNew;
-          stringBuilder = new StringBuilder();
+          if (argCount == args.length) args = Arrays.copyOf(args, argCount * 2);
+          args[argCount++] = stringBuilder.toString();
+          stringBuilder.setLength(0);
           in = false;
           // Set the current text component using the operator and arguments given.
-          textComponents[textIndex++] = createActionTextComponent(operator, args);
-          // Increment the array.
-          TextComponent[] textComponentsNew = new TextComponent[textComponents.length + 1];
-          System.arraycopy(textComponents, 0, textComponentsNew, 0, textComponents.length);
-          textComponentsNew[textComponents.length] = new TextComponent();
-          textComponents = textComponentsNew;
-          args = new String[0];
+          textComponents[textIndex++] =
+              createActionTextComponent(operator, Arrays.copyOf(args, argCount));
+          argCount = 0;
           continue;
         }
         if (inOperator) {
           if (charCurrent == ':') {
             inOperator = false;
             operator = stringBuilder.toString();
-            stringBuilder = new StringBuilder();
+            stringBuilder.setLength(0);
             continue;
           }
           stringBuilder.append(charCurrent);
@@ -486,23 +1539,28 @@ public class LanguagePackage {
         }
         if (charCurrent == ':') {
           // Save the next argument.
-          String[] argsNew = new String[args.length + 1];
-          System.arraycopy(args, 0, argsNew, 0, args.length);
-          argsNew[args.length] = stringBuilder.toString();
-          args = argsNew;
-          stringBuilder = new StringBuilder();
+          if (argCount == args.length) args = Arrays.copyOf(args, argCount * 2);
+          args[argCount++] = stringBuilder.toString();
+          stringBuilder.setLength(0);
           continue;
         }
         stringBuilder.append(charCurrent);
         continue;
       }
       // Add the next character.
-      textComponents[textIndex].setText(textComponents[textIndex].getText() + charCurrent);
+      text.append(charCurrent);
+    }
+    textComponents[textIndex++] = in ? null : new TextComponent(text.toString());
+    if (textIndex < textComponents.length) {
+      textComponents = Arrays.copyOf(textComponents, textIndex);
     }
     return textComponents;
   }
 
   /**
+   * Calculates a condition. The condition is compiled on every call, while Templates compile their
+   * conditions once.
+   *
    * @param condition The string to process and calculate.
    * @param languagePackage The language-package instance.
    * @param language The language to process the result.
@@ -510,84 +1568,11 @@ public class LanguagePackage {
    * @return Returns true if all condition(s) pass the test. &br Returns false if the condition(s)
    *     do not pass the test. Returns null if no condition(s) can be located to test.
    */
-  private static Boolean calculateCondition(
+  static Boolean calculateCondition(
       String condition, LanguagePackage languagePackage, Language language, EntryField... entries) {
-    condition = condition.trim();
-    if (condition.contains("&&")) {
-      String[] split = condition.split("&&");
-      Boolean[] results = new Boolean[split.length];
-      for (int index = 0; index < split.length; index++) {
-        results[index] = calculateCondition(split[index], languagePackage, language, entries);
-        // All of them have to be true to return true.
-        if (results[index] == null || !results[index]) return false;
-      }
-    } else if (condition.contains("||")) {
-      String[] split = condition.split(Pattern.quote("||"));
-      Boolean[] results = new Boolean[split.length];
-      for (int index = 0; index < split.length; index++) {
-        results[index] = calculateCondition(split[index], languagePackage, language, entries);
-        // Only one of them has to be true to return true.
-        if (results[index] != null && results[index]) return true;
-      }
-    }
-    boolean invert = false;
-    Boolean result = null;
-    if (condition.contains("==")) {
-      String[] split = condition.split("==");
-      String key = split[0].trim();
-      // Calculate the boolean result.
-      for (EntryField field : entries) {
-        if (field.isKey(key)) {
-          result = field.getValue().toString().trim().equalsIgnoreCase(split[1].trim());
-          break;
-        }
-      }
-    } else if (condition.contains("!=")) {
-      String[] split = condition.split("!=");
-      String key = split[0].trim();
-      // Calculate the boolean result.
-      for (EntryField field : entries) {
-        if (field.isKey(key)) {
-          invert = true;
-          result = field.getValue().toString().trim().equalsIgnoreCase(split[1].trim());
-          break;
-        }
-      }
-    } else {
-      invert = condition.startsWith("!");
-      if (invert) condition = condition.substring(1);
-      // Calculate the boolean result.
-      for (EntryField field : entries) {
-        if (field.isKey(condition)) {
-          Object o = field.getValue();
-          if (o == null) {
-            result = false;
-          } else if (o instanceof Boolean) {
-            result = (Boolean) o;
-          } else if (o instanceof Number) {
-            result = ((Number) o).intValue() > 0;
-          } else {
-            String os = o.toString();
-            result =
-                os.equalsIgnoreCase("true")
-                    || (!os.equalsIgnoreCase("false") && !os.equalsIgnoreCase("0"));
-          }
-          // We have found the variable.
-          break;
-        }
-      }
-      if (result == null) {
-        String test = languagePackage.getString(condition, language, entries);
-        if (test != null) {
-          result =
-              test.equalsIgnoreCase("true")
-                  || (!test.equalsIgnoreCase("false") && !test.equalsIgnoreCase("0"));
-        }
-      }
-    }
-    // Invert the variable if the flag is set.
-    if (result != null && invert) result = !result;
-    return result;
+    PackSnapshot snapshot =
+        languagePackage != null ? languagePackage.getSnapshot(language) : null;
+    return Condition.compile(condition).calculate(snapshot, language, FieldSet.of(entries));
   }
 
   /**
@@ -732,7 +1717,48 @@ public class LanguagePackage {
    */
   public static String[] toStringArray(String string) {
     if (string == null) return null;
-    return ChatColor.translateAlternateColorCodes('&', string).split(NEW_LINE);
+    return toLines(ChatColor.translateAlternateColorCodes('&', string));
+  }
+
+  /**
+   * @param string The processed String to partition with the '\n' operator. Its color codes are
+   *     already translated.
+   * @return Returns a String Array, partitioned by the '\n' operator. If the string is null, null
+   *     is returned.
+   */
+  static String[] toLines(String string) {
+    if (string == null) return null;
+    return string.split(NEW_LINE);
+  }
+
+  /**
+   * Partitions a String with the '\n' operator, handing each line to a consumer. The lines are the
+   * same as {@link #toList(String)}, so trailing empty lines are dropped.
+   *
+   * @param string The String to partition.
+   * @param lines The consumer of each line, in order.
+   */
+  static void forEachLine(@NotNull String string, @NotNull Consumer<? super String> lines) {
+    int end = string.indexOf('\n');
+    if (end == -1) {
+      lines.accept(string);
+      return;
+    }
+    int start = 0;
+    // Empty lines are held back until a line with text follows them, as String.split drops them.
+    int empty = 0;
+    while (true) {
+      if (end == start) {
+        empty++;
+      } else {
+        for (; empty > 0; empty--) lines.accept("");
+        lines.accept(string.substring(start, end));
+      }
+      if (end == string.length()) return;
+      start = end + 1;
+      end = string.indexOf('\n', start);
+      if (end == -1) end = string.length();
+    }
   }
 
   /**
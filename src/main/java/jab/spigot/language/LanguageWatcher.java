@@ -0,0 +1,125 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LanguageWatcher watches the directory of a LanguagePackage for changes to its files, and
+ * reloads only the Languages of the files that changed.
+ *
+ * <p>Changes are collected until no further change is seen for the debounce period, so that an
+ * editor saving a file in several steps, or several files being copied at once, results in a
+ * single reload.
+ *
+ * @author Jab
+ */
+public class LanguageWatcher implements Closeable {
+
+  private final LanguagePackage languagePackage;
+  private final WatchService watchService;
+  private final long debounce;
+  private final Thread thread;
+
+  private volatile boolean running;
+
+  /**
+   * Main constructor.
+   *
+   * @param languagePackage The LanguagePackage to reload.
+   * @param debounce The time, in milliseconds, to wait for further changes before reloading.
+   * @throws IOException Thrown if the directory cannot be watched.
+   */
+  LanguageWatcher(@NotNull LanguagePackage languagePackage, long debounce) throws IOException {
+    this.languagePackage = languagePackage;
+    this.debounce = debounce;
+    Path path = languagePackage.getDirectory().toPath();
+    this.watchService = path.getFileSystem().newWatchService();
+    path.register(
+        watchService,
+        StandardWatchEventKinds.ENTRY_CREATE,
+        StandardWatchEventKinds.ENTRY_MODIFY,
+        StandardWatchEventKinds.ENTRY_DELETE);
+    this.thread = new Thread(this::run, "LanguageWatcher-" + languagePackage.getPackageName());
+    this.thread.setDaemon(true);
+  }
+
+  /** Starts watching the directory. */
+  void start() {
+    running = true;
+    thread.start();
+  }
+
+  /** Stops watching the directory. */
+  @Override
+  public void close() throws IOException {
+    running = false;
+    watchService.close();
+    thread.interrupt();
+  }
+
+  /** @return Returns true if the directory is being watched. */
+  public boolean isRunning() {
+    return this.running;
+  }
+
+  private void run() {
+    try {
+      while (running) {
+        Set<String> fileNames = new HashSet<>();
+        boolean overflow = collect(watchService.take(), fileNames);
+        // Wait until the directory is quiet before reloading.
+        WatchKey key;
+        while ((key = watchService.poll(debounce, TimeUnit.MILLISECONDS)) != null) {
+          overflow |= collect(key, fileNames);
+        }
+        try {
+          if (overflow) {
+            languagePackage.load();
+          } else {
+            languagePackage.reload(fileNames);
+          }
+        } catch (Exception e) {
+          System.out.println(
+              "WARNING: Failed to reload LanguagePackage '"
+                  + languagePackage.getPackageName()
+                  + "': "
+                  + e);
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // The watcher is closed.
+    }
+    running = false;
+  }
+
+  /**
+   * Collects the names of the files changed in the events of a WatchKey.
+   *
+   * @param key The WatchKey to collect.
+   * @param fileNames The Set to add the file names to.
+   * @return Returns true if events were lost, and the entire directory needs to be reloaded.
+   */
+  private static boolean collect(WatchKey key, Set<String> fileNames) {
+    boolean overflow = false;
+    for (WatchEvent<?> event : key.pollEvents()) {
+      if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+        overflow = true;
+      } else {
+        fileNames.add(((Path) event.context()).getFileName().toString());
+      }
+    }
+    key.reset();
+    return overflow;
+  }
+}
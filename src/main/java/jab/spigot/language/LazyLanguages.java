@@ -0,0 +1,158 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * LazyLanguages holds the state of a LanguagePackage that loads its Languages on demand: the
+ * Languages that have a file in its directory, indexed when the package is loaded, and which
+ * Languages have been requested, so that Languages that are not requested for the idle time can be
+ * unloaded.
+ *
+ * <p>A request only sets a flag for its Language, and sets it only if it is not set already, so
+ * requests do not read the clock or contend with each other. The flags are collected by a sweep
+ * that runs every half of the idle time, which notes the time that each Language was last seen
+ * requested. A Language is therefore unloaded between one and one and a half idle times after its
+ * last request.
+ *
+ * @author Jab
+ */
+final class LazyLanguages implements Closeable {
+
+  /** The time, in milliseconds, before an unrequested Language is unloaded. 0 to never unload. */
+  private final long idleTime;
+
+  /** Set to 1 for each Language requested since the last sweep, by the id of the Language. */
+  private final AtomicIntegerArray requested;
+
+  /** The time each Language was last seen requested, by the id of the Language. */
+  private final long[] lastRequested;
+
+  /** The scheduler of the sweeps. If Languages are never unloaded, null. */
+  private final ScheduledExecutorService scheduler;
+
+  /** The Languages that have a file of the LanguagePackage in the directory. */
+  private volatile Set<Language> languages;
+
+  /**
+   * Main constructor.
+   *
+   * @param name The name of the LanguagePackage.
+   * @param idleTime The time, in milliseconds, before an unrequested Language is unloaded. Set to 0
+   *     to never unload Languages.
+   */
+  LazyLanguages(@NotNull String name, long idleTime) {
+    this.idleTime = idleTime;
+    // Languages registered after this are never unloaded, as they have no slot.
+    int count = Language.count();
+    this.requested = new AtomicIntegerArray(count);
+    this.lastRequested = new long[count];
+    long now = System.currentTimeMillis();
+    for (int index = 0; index < count; index++) lastRequested[index] = now;
+    this.languages = Collections.emptySet();
+    if (idleTime > 0) {
+      this.scheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              task -> {
+                Thread thread = new Thread(task, "LanguagePackage-" + name + "-unloader");
+                thread.setDaemon(true);
+                return thread;
+              });
+    } else {
+      this.scheduler = null;
+    }
+  }
+
+  /**
+   * Starts sweeping for idle Languages. If Languages are never unloaded, nothing is done.
+   *
+   * @param sweep The task that unloads idle Languages.
+   */
+  void start(@NotNull Runnable sweep) {
+    if (scheduler == null) return;
+    long period = Math.max(idleTime / 2, 1);
+    scheduler.scheduleWithFixedDelay(sweep, period, period, TimeUnit.MILLISECONDS);
+  }
+
+  /** Stops sweeping for idle Languages. */
+  @Override
+  public void close() {
+    if (scheduler != null) scheduler.shutdownNow();
+  }
+
+  /**
+   * Sets the Languages that can be loaded.
+   *
+   * @param languages The Languages that have a file of the LanguagePackage.
+   */
+  void index(@NotNull Set<Language> languages) {
+    this.languages = Collections.unmodifiableSet(new HashSet<>(languages));
+  }
+
+  /**
+   * Marks a Language as requested.
+   *
+   * @param language The Language requested.
+   */
+  void request(@NotNull Language language) {
+    int id = language.getId();
+    if (id < requested.length() && requested.get(id) == 0) {
+      requested.lazySet(id, 1);
+    }
+  }
+
+  /**
+   * Collects the Languages that have not been requested for the idle time. A Language in the
+   * fallback chain of a Language that is requested is not idle, as its entries are merged into
+   * the Language.
+   *
+   * @param snapshot The current state of the LanguagePackage.
+   * @return Returns the loaded Languages that are idle.
+   */
+  @NotNull
+  Set<Language> sweep(@NotNull PackSnapshot snapshot) {
+    long now = System.currentTimeMillis();
+    Set<Language> idle = new HashSet<>();
+    Set<Language> active = new HashSet<>();
+    for (Language language : snapshot.getLanguageFiles().keySet()) {
+      int id = language.getId();
+      if (id >= lastRequested.length) continue;
+      if (requested.getAndSet(id, 0) == 1) lastRequested[id] = now;
+      if (now - lastRequested[id] >= idleTime) {
+        idle.add(language);
+      } else {
+        active.add(language);
+      }
+    }
+    Map<Language, List<Language>> mapFallbacks = snapshot.getFallbacks();
+    for (Language language : active) {
+      List<Language> chain = mapFallbacks.get(language);
+      if (chain != null) idle.removeAll(chain);
+    }
+    return idle;
+  }
+
+  /**
+   * @param language The Language to test.
+   * @return Returns true if the LanguagePackage has a file for the Language in the directory.
+   */
+  boolean isIndexed(@NotNull Language language) {
+    return languages.contains(language);
+  }
+
+  /** @return Returns the Languages that have a file of the LanguagePackage in the directory. */
+  @NotNull
+  Set<Language> getLanguages() {
+    return this.languages;
+  }
+}
@@ -0,0 +1,324 @@
+package jab.spigot.language;
+
+import net.md_5.bungee.api.chat.TextComponent;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * MessageDispatcher sends messages of a LanguagePackage without rendering them on the calling
+ * thread. Messages are rendered on a render executor, and the finished lines or components are
+ * handed to a delivery executor, which sends them. On a server, the delivery executor runs tasks
+ * on the main thread, as created with {@link #bukkit(LanguagePackage, Plugin, Executor, int)}.
+ *
+ * <h3>Ordering:</h3>
+ *
+ * Messages to the same recipient are delivered in the order that they were sent, even though they
+ * may render in any order. Messages to different recipients are not ordered with each other. The
+ * delivery executor must run tasks in the order they are submitted, as the Bukkit scheduler does.
+ *
+ * <h3>Back-pressure:</h3>
+ *
+ * At most the given amount of messages can be pending, from the moment they are sent until they
+ * are delivered. A message sent while the limit is reached is not queued: its future fails with a
+ * RejectedExecutionException, and it is counted as rejected. Sending never blocks the calling
+ * thread.
+ *
+ * <p>Each message renders against the state of the LanguagePackage when it was sent, and with a
+ * copy of the EntryFields as they were when it was sent. Players that are offline by the time a
+ * message is delivered are skipped.
+ *
+ * @author Jab
+ */
+public class MessageDispatcher {
+
+  private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+  private final LanguagePackage languagePackage;
+  private final Executor renderExecutor;
+  private final Executor deliveryExecutor;
+  private final int maxPending;
+
+  /** The permits for pending messages. */
+  private final Semaphore pending;
+
+  /** The last delivery to each recipient, to order the next delivery after. */
+  private final Map<Object, CompletableFuture<Void>> mapTails;
+
+  private final LongAdder rejected;
+
+  /**
+   * Main constructor.
+   *
+   * @param languagePackage The LanguagePackage to render messages with.
+   * @param renderExecutor The executor to render messages on.
+   * @param deliveryExecutor The executor to deliver messages on. Tasks must run in the order that
+   *     they are submitted.
+   * @param maxPending The maximum amount of messages that can be pending at once.
+   */
+  public MessageDispatcher(
+      @NotNull LanguagePackage languagePackage,
+      @NotNull Executor renderExecutor,
+      @NotNull Executor deliveryExecutor,
+      int maxPending) {
+    if (maxPending <= 0) {
+      throw new IllegalArgumentException("Maximum pending must be positive: " + maxPending);
+    }
+    this.languagePackage = languagePackage;
+    this.renderExecutor = renderExecutor;
+    this.deliveryExecutor = deliveryExecutor;
+    this.maxPending = maxPending;
+    this.pending = new Semaphore(maxPending);
+    this.mapTails = new ConcurrentHashMap<>();
+    this.rejected = new LongAdder();
+  }
+
+  /**
+   * Creates a MessageDispatcher that delivers messages on the server's main thread.
+   *
+   * @param languagePackage The LanguagePackage to render messages with.
+   * @param plugin The plugin to schedule the deliveries for.
+   * @param renderExecutor The executor to render messages on.
+   * @param maxPending The maximum amount of messages that can be pending at once.
+   * @return Returns the created MessageDispatcher.
+   */
+  @NotNull
+  public static MessageDispatcher bukkit(
+      @NotNull LanguagePackage languagePackage,
+      @NotNull Plugin plugin,
+      @NotNull Executor renderExecutor,
+      int maxPending) {
+    Executor mainThread = task -> Bukkit.getScheduler().runTask(plugin, task);
+    return new MessageDispatcher(languagePackage, renderExecutor, mainThread, maxPending);
+  }
+
+  /**
+   * Sends a processed String Message to a recipient in their own Language.
+   *
+   * @param recipient The recipient of the message.
+   * @param key The String identity of the entry to process.
+   * @param entries The EntryList Array of any additional entries to process with the String
+   *     message.
+   * @return Returns a future that completes once the message is delivered.
+   * @see LanguagePackage#getLanguage(CommandSender)
+   */
+  @NotNull
+  public CompletableFuture<Void> sendMessage(
+      @NotNull CommandSender recipient, @NotNull String key, EntryField... entries) {
+    return sendMessage(recipient, key, LanguagePackage.getLanguage(recipient), entries);
+  }
+
+  /**
+   * Sends a processed String Message to a recipient.
+   *
+   * @param recipient The recipient of the message.
+   * @param key The String identity of the entry to process.
+   * @param language The Language to use for the recipient.
+   * @param entries The EntryList Array of any additional entries to process with the String
+   *     message.
+   * @return Returns a future that completes once the message is delivered.
+   */
+  @NotNull
+  public CompletableFuture<Void> sendMessage(
+      @NotNull CommandSender recipient,
+      @NotNull String key,
+      @NotNull Language language,
+      EntryField... entries) {
+    return sendMessage(recipient, key, language, FieldSet.of(entries));
+  }
+
+  /**
+   * Sends a processed String Message to a recipient. The values of the fields are copied when the
+   * message is sent, so the FieldSet can be re-used right away.
+   *
+   * @param recipient The recipient of the message.
+   * @param key The String identity of the entry to process.
+   * @param language The Language to use for the recipient.
+   * @param fields The EntryFields to process the message with.
+   * @return Returns a future that completes once the message is delivered.
+   */
+  @NotNull
+  public CompletableFuture<Void> sendMessage(
+      @NotNull CommandSender recipient,
+      @NotNull String key,
+      @NotNull Language language,
+      @NotNull FieldSet fields) {
+    return dispatch(
+        recipient,
+        key,
+        language,
+        fields,
+        LanguagePackage::toLines,
+        lines -> recipient.sendMessage(lines));
+  }
+
+  /**
+   * Sends processed TextComponents to a Player in their own Language.
+   *
+   * @param player The Player to send the components to.
+   * @param key The String identity of the entry to process.
+   * @param entries The EntryList Array of any additional entries to process with the String
+   *     message.
+   * @return Returns a future that completes once the components are delivered.
+   * @see LanguagePackage#getLanguage(CommandSender)
+   */
+  @NotNull
+  public CompletableFuture<Void> sendTexts(
+      @NotNull Player player, @NotNull String key, EntryField... entries) {
+    return sendTexts(player, key, LanguagePackage.getLanguage(player), entries);
+  }
+
+  /**
+   * Sends processed TextComponents to a Player.
+   *
+   * @param player The Player to send the components to.
+   * @param key The String identity of the entry to process.
+   * @param language The Language to use for the Player.
+   * @param entries The EntryList Array of any additional entries to process with the String
+   *     message.
+   * @return Returns a future that completes once the components are delivered.
+   */
+  @NotNull
+  public CompletableFuture<Void> sendTexts(
+      @NotNull Player player,
+      @NotNull String key,
+      @NotNull Language language,
+      EntryField... entries) {
+    return sendTexts(player, key, language, FieldSet.of(entries));
+  }
+
+  /**
+   * Sends processed TextComponents to a Player. The values of the fields are copied when the
+   * components are sent, so the FieldSet can be re-used right away.
+   *
+   * @param player The Player to send the components to.
+   * @param key The String identity of the entry to process.
+   * @param language The Language to use for the Player.
+   * @param fields The EntryFields to process the components with.
+   * @return Returns a future that completes once the components are delivered.
+   */
+  @NotNull
+  public CompletableFuture<Void> sendTexts(
+      @NotNull Player player,
+      @NotNull String key,
+      @NotNull Language language,
+      @NotNull FieldSet fields) {
+    return dispatch(
+        player,
+        key,
+        language,
+        fields,
+        LanguagePackage::toTexts,
+        texts -> player.spigot().sendMessage(texts));
+  }
+
+  /** @return Returns the amount of messages sent that are not delivered yet. */
+  public int getPending() {
+    return maxPending - pending.availablePermits();
+  }
+
+  /** @return Returns the maximum amount of messages that can be pending at once. */
+  public int getMaxPending() {
+    return this.maxPending;
+  }
+
+  /** @return Returns the amount of messages rejected because too many were pending. */
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Renders a message on the render executor, and delivers it on the delivery executor after
+   * any message sent to the recipient before it.
+   *
+   * @param recipient The recipient of the message.
+   * @param key The String identity of the entry to process.
+   * @param language The Language to use for the recipient.
+   * @param fields The EntryFields to process the message with.
+   * @param convert The function converting the rendered String into what is delivered.
+   * @param deliver The function delivering the message to the recipient.
+   * @param <T> The type of message delivered.
+   * @return Returns a future that completes once the message is delivered.
+   */
+  private <T> CompletableFuture<Void> dispatch(
+      CommandSender recipient,
+      String key,
+      Language language,
+      FieldSet fields,
+      Function<String, T> convert,
+      Consumer<T> deliver) {
+    if (key == null || key.isEmpty()) {
+      throw new IllegalArgumentException("Key given is null or empty.");
+    }
+    if (!pending.tryAcquire()) {
+      rejected.increment();
+      CompletableFuture<Void> future = new CompletableFuture<>();
+      future.completeExceptionally(
+          new RejectedExecutionException("Too many pending messages: " + maxPending));
+      return future;
+    }
+    PackSnapshot snapshot = languagePackage.getSnapshot();
+    EntryKey entryKey = EntryKey.of(key);
+    FieldSet copies = fields != null ? fields.copy() : FieldSet.EMPTY;
+    CompletableFuture<T> rendered;
+    try {
+      rendered =
+          CompletableFuture.supplyAsync(
+              () -> convert.apply(languagePackage.getString(snapshot, entryKey, language, copies)),
+              renderExecutor);
+    } catch (RuntimeException e) {
+      pending.release();
+      throw e;
+    }
+    Object recipientKey =
+        recipient instanceof Player ? ((Player) recipient).getUniqueId() : recipient;
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    CompletableFuture<Void> tail = mapTails.put(recipientKey, future);
+    // Wait for the previous delivery whether or not it succeeded.
+    CompletableFuture<?> previous = tail != null ? tail.handle((v, e) -> null) : DONE;
+    previous
+        .thenCombine(rendered, (v, message) -> message)
+        .thenAcceptAsync(message -> deliver(recipient, message, deliver), deliveryExecutor)
+        .whenComplete(
+            (v, e) -> {
+              pending.release();
+              mapTails.remove(recipientKey, future);
+              if (e != null) {
+                future.completeExceptionally(e);
+              } else {
+                future.complete(null);
+              }
+            });
+    return future;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Delivers a message, unless it is null, or the recipient is a Player that is offline.
+   *
+   * @param recipient The recipient of the message.
+   * @param message The message to deliver.
+   * @param deliver The function delivering the message to the recipient.
+   * @param <T> The type of message delivered.
+   */
+  private static <T> void deliver(CommandSender recipient, T message, Consumer<T> deliver) {
+    if (message == null) return;
+    if (recipient instanceof Player && !((Player) recipient).isOnline()) return;
+    deliver.accept(message);
+  }
+}
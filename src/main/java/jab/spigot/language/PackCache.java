@@ -0,0 +1,465 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * PackCache is a binary cache of the entries read from the language files of a LanguagePackage.
+ * Reading a file from the cache skips the YAML parser, and the compilation of its entries.
+ *
+ * <p>Each language file is stored as a source, noted with the size, last-modified time and CRC-32
+ * of the file when it was read. A source is only used if the file still has the same size, and
+ * either the same last-modified time or the same CRC-32.
+ *
+ * <p>Only the index of the cache file is held in memory. The encoded entries of a source are read
+ * from the cache file when the source is used, and decoded into new entries each time. A file read
+ * from YAML is encoded as it is read, and its encoded entries are held only until the cache is
+ * written. Sources of files that no longer exist in the directory are dropped when the cache is
+ * written.
+ *
+ * <h3>Format:</h3>
+ *
+ * <ul>
+ *   <li><b>Header</b> : The magic number, the version of the format and the amount of sources.
+ *   <li><b>Index</b> : For each source, the name, size, last-modified time and CRC-32 of its file,
+ *       and the length of its encoded entries.
+ *   <li><b>Data</b> : The encoded entries of each source, in the order of the index.
+ * </ul>
+ *
+ * <p>Encoded entries start with a string table, holding each String used by the entries once.
+ * For each entry, the id of the entry follows, then its compiled Template or the PoolType and
+ * compiled Templates of its StringPool.
+ *
+ * @author Jab
+ */
+final class PackCache {
+
+  private static final int MAGIC = 0x4C504B43;
+  private static final int VERSION = 3;
+
+  private static final byte ENTRY_TEMPLATE = 0;
+  private static final byte ENTRY_POOL = 1;
+
+  /** The cache file. */
+  private final File file;
+
+  /** The directory of the language files. */
+  private final File directory;
+
+  /**
+   * The sources of the cache file, and of every file read since, by the name of the file. Null
+   * until the cache file is opened.
+   */
+  private Map<String, Source> mapSources;
+
+  /** Set to true when the sources change from those of the cache file. */
+  private volatile boolean dirty;
+
+  /**
+   * Main constructor.
+   *
+   * @param file The cache file.
+   * @param directory The directory of the language files.
+   */
+  PackCache(@NotNull File file, @NotNull File directory) {
+    this.file = file;
+    this.directory = directory;
+  }
+
+  /**
+   * Reads the entries of a language file, from the cache if it is valid for the file, otherwise
+   * from the file itself.
+   *
+   * @param source The language file to read.
+   * @return Returns a Map of the entries read, with their ids lower-cased.
+   */
+  @NotNull
+  Map<String, Object> read(@NotNull File source) {
+    String name = source.getName();
+    long size = source.length();
+    long lastModified = source.lastModified();
+    // The CRC-32 is only computed when needed, and at most once.
+    Long crc = null;
+    Source cached = getSource(name);
+    if (cached != null && cached.size == size) {
+      boolean valid = cached.lastModified == lastModified;
+      if (!valid && cached.crc != -1) {
+        crc = crc(source);
+        valid = cached.crc == crc;
+      }
+      byte[] data = valid ? load(cached) : null;
+      Map<String, Object> entries = data != null ? decode(data) : null;
+      if (entries != null) {
+        // Note the new last-modified time, so that the next load does not check the CRC-32.
+        if (cached.lastModified != lastModified) {
+          putSource(cached.modified(lastModified));
+        }
+        return entries;
+      }
+    }
+    if (crc == null) {
+      crc = crc(source);
+    }
+    Map<String, Object> entries = LanguageFile.read(source);
+    try {
+      putSource(new Source(name, size, lastModified, crc, encode(entries)));
+    } catch (IOException e) {
+      // Writing to memory does not fail.
+      throw new IllegalStateException(e);
+    }
+    return entries;
+  }
+
+  /**
+   * Writes the cache file, if any source changed since the cache file was read or written. Once
+   * written, the encoded entries of the sources are no longer held in memory.
+   *
+   * @throws IOException Thrown if the cache file fails to write.
+   */
+  synchronized void write() throws IOException {
+    if (!open()) return;
+    // Drop the sources of files that were deleted.
+    if (mapSources.keySet().removeIf(name -> !new File(directory, name).exists())) {
+      dirty = true;
+    }
+    if (!dirty) return;
+    // Gather the encoded entries of each source, dropping those that fail to read.
+    Map<Source, byte[]> mapData = new LinkedHashMap<>();
+    long position = 12;
+    for (Source source : mapSources.values()) {
+      byte[] data = load(source);
+      if (data == null) continue;
+      mapData.put(source, data);
+      position += 32 + source.name.getBytes(StandardCharsets.UTF_8).length;
+    }
+    // Write to a temporary file first, so that a failed write never leaves a partial cache.
+    File temp = new File(file.getPath() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(mapData.size());
+      for (Source source : mapData.keySet()) {
+        writeString(out, source.name);
+        out.writeLong(source.size);
+        out.writeLong(source.lastModified);
+        out.writeLong(source.crc);
+        out.writeInt(mapData.get(source).length);
+      }
+      for (byte[] data : mapData.values()) {
+        out.write(data);
+      }
+    }
+    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    // Point each source at the cache file written, releasing its encoded entries.
+    Map<String, Source> map = new LinkedHashMap<>();
+    for (Map.Entry<Source, byte[]> entry : mapData.entrySet()) {
+      Source source = entry.getKey();
+      int length = entry.getValue().length;
+      map.put(source.name, source.stored(position, length));
+      position += length;
+    }
+    this.mapSources = map;
+    dirty = false;
+  }
+
+  /** @return Returns the cache file. */
+  @NotNull
+  File getFile() {
+    return this.file;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param name The name of the language file.
+   * @return Returns the Source of the file. If the file is not cached, null is returned.
+   */
+  private synchronized Source getSource(String name) {
+    return open() ? mapSources.get(name) : null;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param source The Source to hold in place of any Source of the same file.
+   */
+  private synchronized void putSource(Source source) {
+    if (!open()) return;
+    mapSources.put(source.name, source);
+    dirty = true;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Reads the encoded entries of a source. The cache file is only read while holding the lock,
+   * so that it is never read while being replaced.
+   *
+   * @param source The Source to read.
+   * @return Returns the encoded entries of the source. If they fail to read, null is returned.
+   */
+  private synchronized byte[] load(Source source) {
+    if (source.data != null) return source.data;
+    // The source no longer belongs to the cache file, as it was replaced.
+    if (mapSources.get(source.name) != source) return null;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(source.length);
+      long position = source.position;
+      while (buffer.hasRemaining()) {
+        int read = channel.read(buffer, position);
+        if (read == -1) throw new EOFException();
+        position += read;
+      }
+      return buffer.array();
+    } catch (IOException e) {
+      System.out.println("WARNING: Invalid cache file: " + file.getPath() + " (" + e + ")");
+      return null;
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Opens the cache file, if not opened already. Only the index of the cache file is read. If
+   * there is no valid cache file, the cache starts empty.
+   *
+   * @return Returns true, once the cache file is open.
+   */
+  private boolean open() {
+    if (mapSources != null) return true;
+    Map<String, Source> map = new LinkedHashMap<>();
+    if (file.exists()) {
+      try (DataInputStream in =
+          new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+        // A cache file of another version is replaced once the cache is written.
+        if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+          int count = in.readInt();
+          long position = 12;
+          Source[] sources = new Source[count];
+          for (int index = 0; index < count; index++) {
+            String name = readString(in);
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            long crc = in.readLong();
+            int length = in.readInt();
+            sources[index] = new Source(name, size, lastModified, crc, 0, length);
+            position += 32 + name.getBytes(StandardCharsets.UTF_8).length;
+          }
+          // The data of each source follows the index, in the order of the index.
+          for (Source source : sources) {
+            map.put(source.name, source.stored(position, source.length));
+            position += source.length;
+          }
+          if (position != file.length()) {
+            throw new EOFException("Expected " + position + " bytes.");
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        System.out.println("WARNING: Invalid cache file: " + file.getPath() + " (" + e + ")");
+        map.clear();
+      }
+    }
+    this.mapSources = map;
+    return true;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param entries The entries read from a language file.
+   * @return Returns the encoded entries.
+   * @throws IOException Thrown if the entries fail to encode.
+   */
+  private static byte[] encode(Map<String, Object> entries) throws IOException {
+    Map<String, Integer> mapStrings = new LinkedHashMap<>();
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(body);
+    out.writeInt(entries.size());
+    for (Map.Entry<String, Object> entry : entries.entrySet()) {
+      out.writeInt(intern(mapStrings, entry.getKey()));
+      Object value = entry.getValue();
+      if (value instanceof StringPool) {
+        StringPool stringPool = (StringPool) value;
+        Template[] templates = stringPool.getTemplates();
+        out.writeByte(ENTRY_POOL);
+        out.writeByte(stringPool.getType().ordinal());
+        out.writeInt(templates.length);
+        for (Template template : templates) {
+          template.write(out, string -> intern(mapStrings, string));
+        }
+      } else {
+        out.writeByte(ENTRY_TEMPLATE);
+        Template template =
+            value instanceof Template ? (Template) value : Template.compile(value.toString());
+        template.write(out, string -> intern(mapStrings, string));
+      }
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.size() + 64);
+    DataOutputStream head = new DataOutputStream(bytes);
+    head.writeInt(mapStrings.size());
+    for (String string : mapStrings.keySet()) {
+      writeString(head, string);
+    }
+    body.writeTo(head);
+    return bytes.toByteArray();
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param data The encoded entries of a source.
+   * @return Returns the decoded entries. If the entries fail to decode, null is returned.
+   */
+  private Map<String, Object> decode(byte[] data) {
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      String[] strings = new String[buffer.getInt()];
+      for (int index = 0; index < strings.length; index++) {
+        strings[index] = readString(buffer);
+      }
+      int count = buffer.getInt();
+      Map<String, Object> entries = new HashMap<>();
+      for (int index = 0; index < count; index++) {
+        String key = strings[buffer.getInt()];
+        if (buffer.get() == ENTRY_POOL) {
+          StringPool stringPool = new StringPool(PoolType.values()[buffer.get()]);
+          int size = buffer.getInt();
+          for (int poolIndex = 0; poolIndex < size; poolIndex++) {
+            stringPool.add(Template.read(buffer, strings));
+          }
+          entries.put(key, stringPool);
+        } else {
+          entries.put(key, Template.read(buffer, strings));
+        }
+      }
+      return entries;
+    } catch (RuntimeException e) {
+      System.out.println("WARNING: Invalid cache file: " + file.getPath() + " (" + e + ")");
+      return null;
+    }
+  }
+
+  private static void writeString(DataOutputStream out, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static int intern(Map<String, Integer> mapStrings, String string) {
+    Integer index = mapStrings.get(string);
+    if (index == null) {
+      index = mapStrings.size();
+      mapStrings.put(string, index);
+    }
+    return index;
+  }
+
+  /**
+   * @param file The file to read.
+   * @return Returns the CRC-32 of the file's contents. If the file fails to read, -1 is returned.
+   */
+  private static long crc(File file) {
+    CRC32 crc = new CRC32();
+    byte[] bytes = new byte[8192];
+    try (InputStream in = Files.newInputStream(file.toPath())) {
+      int read;
+      while ((read = in.read(bytes)) != -1) {
+        crc.update(bytes, 0, read);
+      }
+    } catch (IOException e) {
+      return -1;
+    }
+    return crc.getValue();
+  }
+
+  /**
+   * Source notes the state of a language file when it was read, and where its encoded entries are:
+   * either held in memory, or at a position in the cache file.
+   */
+  private static final class Source {
+
+    private final String name;
+    private final long size;
+    private final long lastModified;
+    private final long crc;
+    private final long position;
+    private final int length;
+    private final byte[] data;
+
+    Source(String name, long size, long lastModified, long crc, byte[] data) {
+      this(name, size, lastModified, crc, -1, data.length, data);
+    }
+
+    Source(String name, long size, long lastModified, long crc, long position, int length) {
+      this(name, size, lastModified, crc, position, length, null);
+    }
+
+    private Source(
+        String name,
+        long size,
+        long lastModified,
+        long crc,
+        long position,
+        int length,
+        byte[] data) {
+      this.name = name;
+      this.size = size;
+      this.lastModified = lastModified;
+      this.crc = crc;
+      this.position = position;
+      this.length = length;
+      this.data = data;
+    }
+
+    /**
+     * @param lastModified The new last-modified time of the file.
+     * @return Returns a copy of the Source, noting the new last-modified time.
+     */
+    Source modified(long lastModified) {
+      return new Source(name, size, lastModified, crc, position, length, data);
+    }
+
+    /**
+     * @param position The position of the encoded entries in the cache file.
+     * @param length The length of the encoded entries.
+     * @return Returns a copy of the Source, pointing at the cache file instead of holding its data.
+     */
+    Source stored(long position, int length) {
+      return new Source(name, size, lastModified, crc, position, length, null);
+    }
+  }
+}
@@ -0,0 +1,445 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PackMetrics records how a LanguagePackage is used: how often each entry and Language is
+ * requested, how often a request finds no entry, how deeply renders nest, and how long renders,
+ * processString calls and getTexts calls take.
+ *
+ * <p>All counters are LongAdders, so threads recording at once do not contend. Latencies are
+ * recorded in nanoseconds, in histograms with power-of-two buckets. Read the metrics with {@link
+ * #snapshot()}.
+ *
+ * <p>Requests are counted for each entry that was found at least once, so the entries counted are
+ * bounded by the entries of the LanguagePackage. Requests for ids that were never found, such as
+ * typos or ids built from user input, are counted by id for up to {@link #MAX_MISSED_KEYS} ids.
+ * Requests for any further ids are only counted in total, so that metrics never grow without
+ * bound.
+ *
+ * <p>When metrics are disabled, the LanguagePackage holds no PackMetrics, and the only cost is a
+ * null check.
+ *
+ * @author Jab
+ */
+public final class PackMetrics {
+
+  /** The most ids that were never found to count the requests of, by id. */
+  public static final int MAX_MISSED_KEYS = 1024;
+
+  /** The requests and misses of each entry that was found at least once, by entry id. */
+  private final Map<String, Counter> mapKeys;
+
+  /** The requests of each id that was never found, for up to MAX_MISSED_KEYS ids. */
+  private final Map<String, LongAdder> mapMissedKeys;
+
+  /** The requests of ids that were never found, once MAX_MISSED_KEYS ids are counted. */
+  private final LongAdder otherMisses;
+
+  /** The requests and misses of each Language. */
+  private final Map<Language, Counter> mapLanguages;
+
+  /** Every lookup of an entry, including the lookups of nested entries. */
+  private final Counter lookups;
+
+  /** The requests returned from the render cache, without rendering the entry. */
+  private final LongAdder cachedRequests;
+
+  private final Histogram renderTime;
+  private final Histogram renderDepth;
+  private final Histogram processTime;
+  private final Histogram textsTime;
+
+  /**
+   * The current and deepest nesting depth of the render on each thread, followed by 1 if the
+   * request was returned from the render cache.
+   */
+  private final ThreadLocal<int[]> depth;
+
+  PackMetrics() {
+    this.mapKeys = new ConcurrentHashMap<>();
+    this.mapMissedKeys = new ConcurrentHashMap<>();
+    this.otherMisses = new LongAdder();
+    this.mapLanguages = new ConcurrentHashMap<>();
+    this.lookups = new Counter();
+    this.cachedRequests = new LongAdder();
+    this.renderTime = new Histogram();
+    this.renderDepth = new Histogram();
+    this.processTime = new Histogram();
+    this.textsTime = new Histogram();
+    this.depth = ThreadLocal.withInitial(() -> new int[3]);
+  }
+
+  /**
+   * Records a lookup of an entry.
+   *
+   * @param found Set to true if the entry was found.
+   */
+  void lookup(boolean found) {
+    lookups.record(found);
+  }
+
+  /** Marks the start of a request, before the entry is rendered. */
+  void beginRequest() {
+    int[] depth = this.depth.get();
+    depth[0] = 0;
+    depth[1] = 0;
+    depth[2] = 0;
+  }
+
+  /**
+   * Records a request once the entry is rendered.
+   *
+   * @param id The id of the entry requested.
+   * @param language The Language requested.
+   * @param found Set to true if the entry was found.
+   * @param nanos The time taken, in nanoseconds.
+   */
+  void endRequest(String id, Language language, boolean found, long nanos) {
+    Counter counter = found ? getCounter(mapKeys, id) : mapKeys.get(id);
+    if (counter != null) {
+      counter.record(found);
+    } else {
+      recordMissedKey(id);
+    }
+    getCounter(mapLanguages, language).record(found);
+    renderTime.record(nanos);
+    int[] depth = this.depth.get();
+    // A request returned from the render cache has no depth, as the entry was not rendered.
+    if (depth[2] != 0) {
+      cachedRequests.increment();
+    } else {
+      renderDepth.record(depth[1]);
+    }
+  }
+
+  /** Marks the current request as returned from the render cache. */
+  void cachedRender() {
+    depth.get()[2] = 1;
+  }
+
+  /** Marks the start of the render of an entry, nested or not. */
+  void enterRender() {
+    int[] depth = this.depth.get();
+    if (++depth[0] > depth[1]) depth[1] = depth[0];
+  }
+
+  /** Marks the end of the render of an entry, nested or not. */
+  void exitRender() {
+    depth.get()[0]--;
+  }
+
+  /**
+   * Records a call to processString.
+   *
+   * @param nanos The time taken, in nanoseconds.
+   */
+  void recordProcess(long nanos) {
+    processTime.record(nanos);
+  }
+
+  /**
+   * Records a call to getTexts.
+   *
+   * @param nanos The time taken, in nanoseconds.
+   */
+  void recordTexts(long nanos) {
+    textsTime.record(nanos);
+  }
+
+  /** @return Returns a copy of the metrics recorded so far. */
+  @NotNull
+  public Snapshot snapshot() {
+    return new Snapshot(this);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Records a request for an id that was never found. Once MAX_MISSED_KEYS ids are counted,
+   * requests for other ids are counted in total. Threads counting a new id at once can count a few
+   * ids past the limit.
+   *
+   * @param id The id of the entry requested.
+   */
+  private void recordMissedKey(String id) {
+    LongAdder counter = mapMissedKeys.get(id);
+    if (counter == null) {
+      if (mapMissedKeys.size() >= MAX_MISSED_KEYS) {
+        otherMisses.increment();
+        return;
+      }
+      counter = mapMissedKeys.computeIfAbsent(id, key -> new LongAdder());
+    }
+    counter.increment();
+  }
+
+  private static <K> Counter getCounter(Map<K, Counter> map, K key) {
+    Counter counter = map.get(key);
+    return counter != null ? counter : map.computeIfAbsent(key, k -> new Counter());
+  }
+
+  private static <K> Map<K, Counts> snapshot(Map<K, Counter> map) {
+    Map<K, Counts> copy = new HashMap<>();
+    for (Map.Entry<K, Counter> entry : map.entrySet()) {
+      copy.put(entry.getKey(), entry.getValue().snapshot());
+    }
+    return Collections.unmodifiableMap(copy);
+  }
+
+  /** Counter counts requests, and the requests that found no entry. */
+  private static final class Counter {
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    void record(boolean found) {
+      requests.increment();
+      if (!found) misses.increment();
+    }
+
+    Counts snapshot() {
+      return new Counts(requests.sum(), misses.sum());
+    }
+  }
+
+  /** Histogram counts values in power-of-two buckets. */
+  private static final class Histogram {
+
+    private final LongAdder[] buckets;
+    private final LongAdder sum;
+
+    Histogram() {
+      buckets = new LongAdder[64];
+      for (int index = 0; index < buckets.length; index++) {
+        buckets[index] = new LongAdder();
+      }
+      sum = new LongAdder();
+    }
+
+    void record(long value) {
+      if (value < 0) value = 0;
+      // Bucket 0 holds 0, and bucket n holds values from 2^(n-1) to 2^n - 1.
+      buckets[64 - Long.numberOfLeadingZeros(value)].increment();
+      sum.add(value);
+    }
+
+    Distribution snapshot() {
+      long[] counts = new long[buckets.length];
+      for (int index = 0; index < counts.length; index++) {
+        counts[index] = buckets[index].sum();
+      }
+      return new Distribution(counts, sum.sum());
+    }
+  }
+
+  /** Counts is a copy of the requests and misses of an entry, a Language or all lookups. */
+  public static final class Counts {
+
+    private final long requests;
+    private final long misses;
+
+    Counts(long requests, long misses) {
+      this.requests = requests;
+      this.misses = misses;
+    }
+
+    /** @return Returns the amount of requests. */
+    public long getRequests() {
+      return this.requests;
+    }
+
+    /** @return Returns the amount of requests that found no entry. */
+    public long getMisses() {
+      return this.misses;
+    }
+
+    @Override
+    public String toString() {
+      return "requests=" + requests + ", misses=" + misses;
+    }
+  }
+
+  /** Distribution is a copy of a histogram. */
+  public static final class Distribution {
+
+    private final long[] buckets;
+    private final long count;
+    private final long sum;
+
+    Distribution(long[] buckets, long sum) {
+      this.buckets = buckets;
+      this.sum = sum;
+      long count = 0;
+      for (long bucket : buckets) count += bucket;
+      this.count = count;
+    }
+
+    /** @return Returns the amount of values recorded. */
+    public long getCount() {
+      return this.count;
+    }
+
+    /** @return Returns the mean of the values recorded. If none are recorded, 0 is returned. */
+    public double getMean() {
+      return count != 0 ? (double) sum / count : 0;
+    }
+
+    /**
+     * @param percentile The percentile, from 0 to 100.
+     * @return Returns the upper bound of the bucket holding the percentile. If no values are
+     *     recorded, 0 is returned.
+     */
+    public long getPercentile(double percentile) {
+      if (count == 0) return 0;
+      long rank = (long) Math.ceil(count * Math.min(Math.max(percentile, 0), 100) / 100.0);
+      long seen = 0;
+      for (int index = 0; index < buckets.length; index++) {
+        seen += buckets[index];
+        if (seen >= Math.max(rank, 1)) {
+          return index == 0 ? 0 : index == 63 ? Long.MAX_VALUE : (1L << index) - 1;
+        }
+      }
+      return Long.MAX_VALUE;
+    }
+
+    /**
+     * @return Returns the counts of each bucket. Bucket 0 counts the value 0, and bucket n counts
+     *     values from 2^(n-1) to 2^n - 1.
+     */
+    @NotNull
+    public long[] getBuckets() {
+      return buckets.clone();
+    }
+
+    @Override
+    public String toString() {
+      return "count="
+          + count
+          + ", mean="
+          + String.format("%.1f", getMean())
+          + ", p50="
+          + getPercentile(50)
+          + ", p99="
+          + getPercentile(99);
+    }
+  }
+
+  /** Snapshot is a copy of the metrics of a LanguagePackage at one point in time. */
+  public static final class Snapshot {
+
+    private final Map<String, Counts> mapKeys;
+    private final Map<String, Long> mapMissedKeys;
+    private final long otherMisses;
+    private final Map<Language, Counts> mapLanguages;
+    private final Counts lookups;
+    private final long cachedRequests;
+    private final Distribution renderTime;
+    private final Distribution renderDepth;
+    private final Distribution processTime;
+    private final Distribution textsTime;
+
+    Snapshot(PackMetrics metrics) {
+      this.mapKeys = PackMetrics.snapshot(metrics.mapKeys);
+      Map<String, Long> mapMissedKeys = new HashMap<>();
+      for (Map.Entry<String, LongAdder> entry : metrics.mapMissedKeys.entrySet()) {
+        mapMissedKeys.put(entry.getKey(), entry.getValue().sum());
+      }
+      this.mapMissedKeys = Collections.unmodifiableMap(mapMissedKeys);
+      this.otherMisses = metrics.otherMisses.sum();
+      this.mapLanguages = PackMetrics.snapshot(metrics.mapLanguages);
+      this.lookups = metrics.lookups.snapshot();
+      this.cachedRequests = metrics.cachedRequests.sum();
+      this.renderTime = metrics.renderTime.snapshot();
+      this.renderDepth = metrics.renderDepth.snapshot();
+      this.processTime = metrics.processTime.snapshot();
+      this.textsTime = metrics.textsTime.snapshot();
+    }
+
+    /**
+     * @return Returns the requests and misses of each entry requested that was found at least
+     *     once, by lower-cased id.
+     */
+    @NotNull
+    public Map<String, Counts> getKeys() {
+      return this.mapKeys;
+    }
+
+    /**
+     * @return Returns the requests of each id that was never found, by lower-cased id. Up to
+     *     {@link #MAX_MISSED_KEYS} ids are counted. An id found later keeps the requests counted
+     *     here before it was found.
+     */
+    @NotNull
+    public Map<String, Long> getMissedKeys() {
+      return this.mapMissedKeys;
+    }
+
+    /**
+     * @return Returns the requests of ids that were never found, and are not counted by id as
+     *     {@link #MAX_MISSED_KEYS} ids were counted already.
+     */
+    public long getOtherMisses() {
+      return this.otherMisses;
+    }
+
+    /** @return Returns the requests and misses of each Language requested. */
+    @NotNull
+    public Map<Language, Counts> getLanguages() {
+      return this.mapLanguages;
+    }
+
+    /**
+     * @return Returns the lookups and misses of all entries, including nested entries. An entry
+     *     folded at load counts as a single lookup, as its nested entries are not looked up. A
+     *     request returned from the render cache does no lookups.
+     */
+    @NotNull
+    public Counts getLookups() {
+      return this.lookups;
+    }
+
+    /**
+     * @return Returns the getString requests returned from the render cache. These requests are
+     *     counted as found, and are not sampled in {@link #getRenderDepth()}.
+     */
+    public long getCachedRequests() {
+      return this.cachedRequests;
+    }
+
+    /** @return Returns the time taken by getString requests, in nanoseconds. */
+    @NotNull
+    public Distribution getRenderTime() {
+      return this.renderTime;
+    }
+
+    /**
+     * @return Returns the nesting depth of getString requests that rendered their entry. A
+     *     request for an entry with no nested entries has a depth of 1. A request that found no
+     *     entry has a depth of 0. Requests returned from the render cache are not sampled, and
+     *     are counted by {@link #getCachedRequests()} instead.
+     */
+    @NotNull
+    public Distribution getRenderDepth() {
+      return this.renderDepth;
+    }
+
+    /** @return Returns the time taken by processString calls, in nanoseconds. */
+    @NotNull
+    public Distribution getProcessTime() {
+      return this.processTime;
+    }
+
+    /** @return Returns the time taken by getTexts calls, in nanoseconds. */
+    @NotNull
+    public Distribution getTextsTime() {
+      return this.textsTime;
+    }
+  }
+}
@@ -0,0 +1,243 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PackSnapshot is the immutable, loaded state of a LanguagePackage. A LanguagePackage builds a new
+ * snapshot whenever it is loaded or appended to, and publishes it with a single volatile write.
+ * Renders read the snapshot once and use it for every nested lookup, so a render never mixes the
+ * state of two loads.
+ *
+ * <p>Fallback chains are flattened when the snapshot is built. Each Language with a chain is given
+ * a merged LanguageFile holding its own entries over the entries of its fallbacks, so a lookup is
+ * a single probe no matter how long the chain is.
+ *
+ * @author Jab
+ */
+final class PackSnapshot {
+
+  /** The snapshot of a LanguagePackage that is not loaded. */
+  static final PackSnapshot EMPTY =
+      new PackSnapshot(new HashMap<Language, LanguageFile>(), new ArrayList<String>());
+
+  /** The Map for LanguageFiles, assigned with their Languages. */
+  private final Map<Language, LanguageFile> mapLanguageFiles;
+
+  /** The names of the packages appended, in the order that they were appended. */
+  private final List<String> appendedPackages;
+
+  /** The fallback chains, assigned with their Languages. */
+  private final Map<Language, List<Language>> mapFallbacks;
+
+  /** The metrics to record lookups and renders with. If null, metrics are disabled. */
+  private final PackMetrics metrics;
+
+  /** The LanguageFiles, indexed by the id of their Language. */
+  private final LanguageFile[] files;
+
+  /**
+   * The LanguageFiles to look entries up in, with the fallback chains merged in, indexed by the id
+   * of their Language.
+   */
+  private final LanguageFile[] lookups;
+
+  /**
+   * Main constructor.
+   *
+   * @param mapLanguageFiles The Map for LanguageFiles, assigned with their Languages. The Map is
+   *     copied.
+   * @param appendedPackages The names of the packages appended, in order. The List is copied.
+   */
+  PackSnapshot(
+      @NotNull Map<Language, LanguageFile> mapLanguageFiles,
+      @NotNull List<String> appendedPackages) {
+    this(mapLanguageFiles, appendedPackages, new HashMap<Language, List<Language>>(), null);
+  }
+
+  /**
+   * @param mapLanguageFiles The Map for LanguageFiles, assigned with their Languages. The Map is
+   *     copied.
+   * @param appendedPackages The names of the packages appended, in order. The List is copied.
+   * @param mapFallbacks The fallback chains, assigned with their Languages. The Map is copied.
+   * @param metrics The metrics to record lookups and renders with. (Can be null)
+   */
+  PackSnapshot(
+      @NotNull Map<Language, LanguageFile> mapLanguageFiles,
+      @NotNull List<String> appendedPackages,
+      @NotNull Map<Language, List<Language>> mapFallbacks,
+      @Nullable PackMetrics metrics) {
+    this.metrics = metrics;
+    this.mapLanguageFiles = Collections.unmodifiableMap(new HashMap<>(mapLanguageFiles));
+    this.appendedPackages = Collections.unmodifiableList(new ArrayList<>(appendedPackages));
+    this.mapFallbacks = Collections.unmodifiableMap(new HashMap<>(mapFallbacks));
+    this.files = toArray(this.mapLanguageFiles);
+    this.lookups = mapFallbacks.isEmpty() ? this.files : toArray(flatten());
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param map The Map for LanguageFiles, assigned with their Languages.
+   * @return Returns the LanguageFiles, indexed by the id of their Language.
+   */
+  private static LanguageFile[] toArray(Map<Language, LanguageFile> map) {
+    int length = 0;
+    for (Language language : map.keySet()) {
+      length = Math.max(length, language.getId() + 1);
+    }
+    LanguageFile[] array = new LanguageFile[length];
+    for (Map.Entry<Language, LanguageFile> entry : map.entrySet()) {
+      array[entry.getKey().getId()] = entry.getValue();
+    }
+    return array;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param array The LanguageFiles, indexed by the id of their Language.
+   * @param language The Language of the LanguageFile.
+   * @return Returns the LanguageFile of the Language. If there is none, null is returned.
+   */
+  private static LanguageFile get(LanguageFile[] array, Language language) {
+    int id = language.getId();
+    return id < array.length ? array[id] : null;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @return Returns the LanguageFiles with the fallback chains merged in.
+   */
+  private Map<Language, LanguageFile> flatten() {
+    Map<Language, LanguageFile> map = new HashMap<>(mapLanguageFiles);
+    for (Map.Entry<Language, List<Language>> entry : mapFallbacks.entrySet()) {
+      // Merge from the end of the chain, so that earlier Languages override later ones.
+      LanguageFile merged = null;
+      List<Language> chain = entry.getValue();
+      for (int index = chain.size() - 1; index >= -1; index--) {
+        Language language = index == -1 ? entry.getKey() : chain.get(index);
+        LanguageFile file = mapLanguageFiles.get(language);
+        if (file != null) {
+          merged = merged != null ? file.merge(merged) : file;
+        }
+      }
+      if (merged != null) {
+        map.put(entry.getKey(), merged);
+      }
+    }
+    return map;
+  }
+
+  /**
+   * @param key The String identity of the entry to process.
+   * @param language The Language to search for the String entry primarily.
+   * @param fields Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns a processed String in the given Language. If the LanguageFile does not contain
+   *     an entry, null is returned.
+   */
+  String getString(@NotNull String key, @NotNull Language language, @NotNull FieldSet fields) {
+    return getString(EntryKey.of(key), language, fields);
+  }
+
+  /**
+   * @param key The pre-resolved identity of the entry to process.
+   * @param language The Language to search for the String entry primarily.
+   * @param fields Any additional EntryFields that add to or override the LanguagePackage library.
+   * @return Returns a processed String in the given Language. If the LanguageFile does not contain
+   *     an entry, null is returned.
+   */
+  String getString(@NotNull EntryKey key, @NotNull Language language, @NotNull FieldSet fields) {
+    return new Resolver(this, language, fields).getString(key);
+  }
+
+  /**
+   * @param key The String identity of the entry.
+   * @param language The Language to search for the entry.
+   * @return Returns the unprocessed entry in the given Language. If the LanguageFile does not
+   *     contain an entry, null is returned.
+   */
+  String getRawString(@NotNull String key, @NotNull Language language) {
+    LanguageFile file = get(lookups, language);
+    String value = file != null ? file.get(key) : null;
+    if (metrics != null) metrics.lookup(value != null);
+    return value;
+  }
+
+  /**
+   * @param key The String identity of the entry.
+   * @param language The Language to search for the entry.
+   * @return Returns the compiled entry in the given Language. If the LanguageFile does not contain
+   *     an entry, null is returned.
+   */
+  Template getTemplate(@NotNull String key, @NotNull Language language) {
+    LanguageFile file = get(lookups, language);
+    Template template = file != null ? file.getTemplate(key) : null;
+    if (metrics != null) metrics.lookup(template != null);
+    return template;
+  }
+
+  /**
+   * @param key The pre-resolved identity of the entry.
+   * @param language The Language to search for the entry.
+   * @return Returns the compiled entry in the given Language. If the LanguageFile does not contain
+   *     an entry, null is returned.
+   */
+  Template getTemplate(@NotNull EntryKey key, @NotNull Language language) {
+    LanguageFile file = get(lookups, language);
+    Template template = file != null ? file.getTemplate(key) : null;
+    if (metrics != null) metrics.lookup(template != null);
+    return template;
+  }
+
+  /**
+   * @param language The Language to look up.
+   * @return Returns the LanguageFile that entries of the Language are looked up in, with its
+   *     fallback chain merged in. If none is loaded, null is returned.
+   */
+  LanguageFile getLookup(@NotNull Language language) {
+    return get(lookups, language);
+  }
+
+  /**
+   * @param language The Language of the LanguageFile.
+   * @return Returns the LanguageFile for the Language. If none is loaded, null is returned.
+   */
+  LanguageFile getLanguageFile(@NotNull Language language) {
+    return get(files, language);
+  }
+
+  /** @return Returns the unmodifiable Map for LanguageFiles, assigned with their Languages. */
+  @NotNull
+  Map<Language, LanguageFile> getLanguageFiles() {
+    return this.mapLanguageFiles;
+  }
+
+  /**
+   * @return Returns the metrics to record lookups and renders with. If disabled, null is returned.
+   */
+  PackMetrics getMetrics() {
+    return this.metrics;
+  }
+
+  /**
+   * @return Returns the unmodifiable Map for the fallback chains, assigned with their Languages.
+   */
+  @NotNull
+  Map<Language, List<Language>> getFallbacks() {
+    return this.mapFallbacks;
+  }
+
+  /** @return Returns the unmodifiable List of the packages appended, in order. */
+  @NotNull
+  List<String> getAppendedPackages() {
+    return this.appendedPackages;
+  }
+}
@@ -0,0 +1,324 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RenderCache is a bounded cache of rendered Strings for a LanguagePackage. Renders are cached by
+ * the entry id, the Language and the keys and values of the EntryFields given. When the cache is
+ * full, the least recently used render is evicted.
+ *
+ * <p>The cache is split into segments by the hash of each render, each with its own lock and its
+ * own share of the capacity, so that renders on different threads seldom wait for each other.
+ * Eviction is least recently used within each segment, which approximates it for the whole cache.
+ *
+ * <p>Entries that reference a StringPool, directly or through any nested entry or condition, are
+ * never cached, since they render differently from one call to the next. Neither are renders with
+ * an EntryField value that is not a String, a Boolean, a primitive wrapper or null, as other
+ * values can change without the cache knowing. The cache is cleared whenever the LanguagePackage
+ * is loaded, reloaded or appended to.
+ *
+ * @author Jab
+ */
+public final class RenderCache {
+
+  /** The most segments that the cache is split into. */
+  private static final int MAX_SEGMENTS = 16;
+
+  /** The fewest renders that each segment holds, so that small caches are not split. */
+  private static final int MIN_SEGMENT_CAPACITY = 16;
+
+  /** The maximum amount of renders to hold. */
+  private final int capacity;
+
+  /** The segments of the cache, by the hash of the renders they hold. */
+  private final Segment[] segments;
+
+  private final int mask;
+
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final LongAdder bypasses;
+
+  /**
+   * Main constructor.
+   *
+   * @param capacity The maximum amount of renders to hold.
+   */
+  RenderCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+    this.capacity = capacity;
+    int count =
+        Math.min(MAX_SEGMENTS, Integer.highestOneBit(Math.max(capacity / MIN_SEGMENT_CAPACITY, 1)));
+    this.segments = new Segment[count];
+    for (int index = 0; index < count; index++) {
+      // Share the capacity out, so that the segments hold no more than the capacity in total.
+      segments[index] = new Segment(capacity / count + (index < capacity % count ? 1 : 0));
+    }
+    this.mask = count - 1;
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.bypasses = new LongAdder();
+  }
+
+  /**
+   * Renders an entry, using the cached render if there is one.
+   *
+   * @param snapshot The snapshot to render from.
+   * @param key The pre-resolved id of the entry.
+   * @param language The Language to render in.
+   * @param fields The EntryFields to render with.
+   * @return Returns the rendered entry. If the entry is not defined, null is returned.
+   */
+  String getString(
+      @NotNull PackSnapshot snapshot,
+      @NotNull EntryKey key,
+      @NotNull Language language,
+      @NotNull FieldSet fields) {
+    RenderKey renderKey =
+        isCacheable(snapshot, language, key) ? RenderKey.of(key.getId(), language, fields) : null;
+    if (renderKey == null) {
+      bypasses.increment();
+      return snapshot.getString(key, language, fields);
+    }
+    Segment segment = getSegment(renderKey);
+    String value = segment.get(snapshot, renderKey);
+    if (value != null) {
+      hits.increment();
+      PackMetrics metrics = snapshot.getMetrics();
+      if (metrics != null) metrics.cachedRender();
+      return value;
+    }
+    misses.increment();
+    value = snapshot.getString(key, language, fields);
+    if (value != null) segment.put(snapshot, renderKey, value);
+    return value;
+  }
+
+  /** Removes all cached renders. The counters are not reset. */
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  /** @return Returns the amount of renders returned from the cache. */
+  public long getHits() {
+    return hits.sum();
+  }
+
+  /** @return Returns the amount of renders that were not cached yet. */
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * @return Returns the amount of renders that could not be cached, as they reference a pool or
+   *     were given an EntryField value that can change.
+   */
+  public long getBypasses() {
+    return bypasses.sum();
+  }
+
+  /** @return Returns the amount of renders currently cached. */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  /** @return Returns the maximum amount of renders to hold. */
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param renderKey The render.
+   * @return Returns the segment that holds the render.
+   */
+  private Segment getSegment(RenderKey renderKey) {
+    int hash = renderKey.hash;
+    return segments[(hash ^ (hash >>> 16)) & mask];
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Tests if an entry renders the same for the same EntryFields. Any entry that can reach a
+   * StringPool is not cacheable, even if the EntryFields given would override the pool.
+   *
+   * @param snapshot The snapshot to test.
+   * @param language The Language to test.
+   * @param key The id of the entry to test.
+   * @return Returns true if the entry can be cached.
+   */
+  private static boolean isCacheable(PackSnapshot snapshot, Language language, EntryKey key) {
+    LanguageFile file = snapshot.getLookup(language);
+    return file == null || !file.getGraph().isVolatile(key.getId());
+  }
+
+  /** Segment is a share of the cache, with its own lock and LRU order. */
+  private static final class Segment {
+
+    /** The cached renders, in access order. */
+    private final LinkedHashMap<RenderKey, String> mapRenders;
+
+    /** The snapshot that the cached renders were rendered from. */
+    private PackSnapshot snapshot;
+
+    /** @param capacity The maximum amount of renders for the segment to hold. */
+    Segment(int capacity) {
+      this.mapRenders =
+          new LinkedHashMap<RenderKey, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RenderKey, String> eldest) {
+              return size() > capacity;
+            }
+          };
+    }
+
+    /**
+     * @param snapshot The snapshot to render from. If the renders held are of another snapshot,
+     *     they are removed.
+     * @param renderKey The render.
+     * @return Returns the cached render. If the render is not cached, null is returned.
+     */
+    synchronized String get(PackSnapshot snapshot, RenderKey renderKey) {
+      if (this.snapshot != snapshot) {
+        mapRenders.clear();
+        this.snapshot = snapshot;
+      }
+      return mapRenders.get(renderKey);
+    }
+
+    /**
+     * @param snapshot The snapshot that the render is of.
+     * @param renderKey The render.
+     * @param value The rendered entry.
+     */
+    synchronized void put(PackSnapshot snapshot, RenderKey renderKey, String value) {
+      // Do not cache a render of a snapshot that has already been replaced.
+      if (this.snapshot == snapshot) {
+        mapRenders.put(renderKey, value);
+      }
+    }
+
+    synchronized void clear() {
+      mapRenders.clear();
+      snapshot = null;
+    }
+
+    synchronized int size() {
+      return mapRenders.size();
+    }
+  }
+
+  /**
+   * RenderKey identifies a render by its entry, Language and EntryFields. The key holds the keys
+   * and values of the EntryFields as they are, and is hashed from their own hashes.
+   */
+  private static final class RenderKey {
+
+    private final String id;
+    private final Language language;
+
+    /**
+     * The keys and values of the EntryFields, in order. Values are compared by their class as well,
+     * as conditions test Booleans and Numbers differently from their String values.
+     */
+    private final Object[] fields;
+
+    private final int hash;
+
+    /**
+     * (Private Constructor)
+     *
+     * @param id The lower-cased id of the entry.
+     * @param language The Language of the render.
+     * @param fields The keys and values of the EntryFields, in order.
+     * @param hash The hash of the render.
+     */
+    private RenderKey(String id, Language language, Object[] fields, int hash) {
+      this.id = id;
+      this.language = language;
+      this.fields = fields;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) return true;
+      if (!(other instanceof RenderKey)) return false;
+      RenderKey key = (RenderKey) other;
+      if (hash != key.hash || language != key.language || fields.length != key.fields.length) {
+        return false;
+      }
+      if (!id.equals(key.id)) return false;
+      for (int index = 0; index < fields.length; index++) {
+        Object value = fields[index];
+        Object otherValue = key.fields[index];
+        if (value == otherValue) continue;
+        if (value == null || otherValue == null) return false;
+        if (value.getClass() != otherValue.getClass() || !value.equals(otherValue)) return false;
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+
+    /**
+     * @param id The lower-cased id of the entry.
+     * @param language The Language of the render.
+     * @param fieldSet The EntryFields of the render.
+     * @return Returns the key of the render. If any EntryField has a value that can change, null is
+     *     returned.
+     */
+    static RenderKey of(String id, Language language, FieldSet fieldSet) {
+      EntryField[] entries = fieldSet.getFields();
+      Object[] fields = new Object[entries.length * 2];
+      int hash = 31 * id.hashCode() + language.hashCode();
+      int index = 0;
+      for (EntryField field : entries) {
+        if (field == null) continue;
+        Object value = field.getValue();
+        if (!isImmutable(value)) return null;
+        String key = field.getKey();
+        fields[index++] = key;
+        fields[index++] = value;
+        hash = 31 * (31 * hash + key.hashCode()) + (value != null ? value.hashCode() : 0);
+      }
+      if (index != fields.length) fields = Arrays.copyOf(fields, index);
+      return new RenderKey(id, language, fields, hash);
+    }
+
+    /**
+     * @param value The value of an EntryField.
+     * @return Returns true if the value cannot change, so that it can be held by a key.
+     */
+    private static boolean isImmutable(Object value) {
+      return value == null
+          || value instanceof String
+          || value instanceof Boolean
+          || value instanceof Integer
+          || value instanceof Long
+          || value instanceof Double
+          || value instanceof Float
+          || value instanceof Short
+          || value instanceof Byte
+          || value instanceof Character;
+    }
+  }
+}
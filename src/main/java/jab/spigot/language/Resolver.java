@@ -0,0 +1,293 @@
+package jab.spigot.language;
+
+import net.md_5.bungee.api.ChatColor;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Resolver renders Templates against a snapshot of a LanguagePackage, resolving the entries that
+ * they reference. A Resolver is created for each render, and is used by one thread.
+ *
+ * <p>Nested entries are rendered with an explicit stack instead of recursion, so a deep or looping
+ * chain of entries cannot overflow the thread's stack. The work of a render is bounded:
+ *
+ * <ul>
+ *   <li>An entry in a loop that renders the same way every time is not rendered inside itself,
+ *       as it would never stop. A loop that can reach a StringPool may stop, as the pool rolls
+ *       differently from one lookup to the next, so it is left to the other bounds.
+ *   <li>Entries are nested at most {@link #MAX_DEPTH} deep.
+ *   <li>At most {@link #MAX_RENDERS} nested entries are rendered for one render.
+ * </ul>
+ *
+ * <p>An entry that cannot be rendered for any of these reasons is treated as if it is not defined.
+ *
+ * @author Jab
+ */
+final class Resolver {
+
+  /** The maximum amount of entries that can render inside each other. */
+  static final int MAX_DEPTH = 64;
+
+  /** The maximum amount of nested entries that can be rendered for one render. */
+  static final int MAX_RENDERS = 10_000;
+
+  private final PackSnapshot snapshot;
+  private final Language language;
+  private final FieldSet fields;
+  private final PackMetrics metrics;
+
+  /** The graph of the LanguageFile looked up in, once it is needed. */
+  private EntryGraph graph;
+
+  /** The entries being rendered, from the outermost to the innermost. */
+  private Frame[] frames;
+
+  private int size;
+
+  /** The amount of nested entries rendered so far. */
+  private int renders;
+
+  /**
+   * Main constructor.
+   *
+   * @param snapshot The snapshot to look up entries in.
+   * @param language The Language to use primarily. If null, English is used.
+   * @param fields The EntryFields to add to or override the LanguagePackage library.
+   */
+  Resolver(@NotNull PackSnapshot snapshot, Language language, FieldSet fields) {
+    this.snapshot = snapshot;
+    this.language = language != null ? language : Language.English;
+    this.fields = fields != null ? fields : FieldSet.EMPTY;
+    this.metrics = snapshot.getMetrics();
+    this.frames = new Frame[4];
+  }
+
+  /**
+   * Renders an entry, with its color codes translated.
+   *
+   * @param key The pre-resolved id of the entry.
+   * @return Returns the rendered entry. If the entry is not defined, or cannot be nested where it
+   *     is looked up, null is returned.
+   */
+  String getString(@NotNull EntryKey key) {
+    String folded = fold(key);
+    if (folded != null) return folded;
+    Template template = lookup(key);
+    return template != null ? render(key.getId(), template) : null;
+  }
+
+  /**
+   * Renders a Template that is not an entry. Its color codes are not translated.
+   *
+   * @param template The Template to render.
+   * @return Returns the rendered Template.
+   */
+  @NotNull
+  String render(@NotNull Template template) {
+    if (template.isStatic()) return template.getText();
+    int base = size;
+    push(null, template);
+    return run(base);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param id The lower-cased id of the entry.
+   * @param template The Template of the entry.
+   * @return Returns the rendered entry, with its color codes translated.
+   */
+  private String render(String id, Template template) {
+    if (metrics != null) metrics.enterRender();
+    if (template.isStatic()) {
+      if (metrics != null) metrics.exitRender();
+      return translate(template.getText());
+    }
+    int base = size;
+    push(id, template);
+    return run(base);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Renders the frames above the base until the frame at the base is complete. Entries that
+   * are referenced are pushed as frames, and their results are handed back to the frame that
+   * referenced them once they are complete.
+   *
+   * @param base The amount of frames below the frame to render.
+   * @return Returns the rendered frame.
+   */
+  private String run(int base) {
+    try {
+      while (true) {
+        Frame frame = frames[size - 1];
+        if (frame.index < frame.nodes.length) {
+          Template.Placeholder placeholder =
+              frame.nodes[frame.index++].append(frame.builder, this, fields, frame.memo);
+          if (placeholder == null) continue;
+          EntryKey key = placeholder.getKey();
+          String folded = fold(key);
+          if (folded != null) {
+            placeholder.complete(frame.builder, folded, frame.memo);
+            continue;
+          }
+          Template template = lookup(key);
+          if (template == null) {
+            placeholder.complete(frame.builder, null, frame.memo);
+          } else if (template.isStatic()) {
+            placeholder.complete(frame.builder, render(key.getId(), template), frame.memo);
+          } else {
+            if (metrics != null) metrics.enterRender();
+            frame.pending = placeholder;
+            push(key.getId(), template);
+          }
+          continue;
+        }
+        String value = pop();
+        if (size == base) return value;
+        Frame parent = frames[size - 1];
+        parent.pending.complete(parent.builder, value, parent.memo);
+        parent.pending = null;
+      }
+    } catch (RuntimeException | Error e) {
+      while (size > base) pop();
+      throw e;
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>A folded entry is only used if it fits in the bounds of the render, and no EntryField
+   * overrides a key that it looks up. Otherwise, the entry is rendered as usual.
+   *
+   * @param key The pre-resolved id of the entry.
+   * @return Returns the folded entry. If the entry is not folded, or cannot be used in the render,
+   *     null is returned.
+   */
+  private String fold(EntryKey key) {
+    EntryGraph graph = getGraph();
+    EntryGraph.Folded folded = graph != null ? graph.getFolded(key.getId()) : null;
+    if (folded == null
+        || size + folded.getDepth() > MAX_DEPTH
+        || (size > 0 && renders + 1 + folded.getRenders() > MAX_RENDERS)
+        || folded.isOverridden(fields)) {
+      return null;
+    }
+    if (size > 0) renders += 1 + (int) folded.getRenders();
+    if (metrics != null) {
+      metrics.lookup(true);
+      metrics.enterRender();
+      metrics.exitRender();
+    }
+    return folded.getText();
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param key The pre-resolved id of the entry.
+   * @return Returns the Template of the entry. If the entry is not defined, is being rendered
+   *     already, or is past the bounds of the render, null is returned.
+   */
+  private Template lookup(EntryKey key) {
+    if (size > 0) {
+      if (size >= MAX_DEPTH || renders >= MAX_RENDERS) return null;
+      if (isLooping(key.getId())) return null;
+      renders++;
+    }
+    return snapshot.getTemplate(key, language);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Only entries that the graph finds in a loop that never stops are tested against the
+   * frames, as no other entry can be reached from itself.
+   *
+   * @param id The lower-cased id of the entry.
+   * @return Returns true if the entry is being rendered, and would never stop if it rendered
+   *     again.
+   */
+  private boolean isLooping(String id) {
+    EntryGraph graph = getGraph();
+    if (graph == null || !graph.isLooping(id)) return false;
+    for (int index = 0; index < size; index++) {
+      if (id.equals(frames[index].id)) return true;
+    }
+    return false;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @return Returns the graph of the LanguageFile looked up in. If there is none, null is returned.
+   */
+  private EntryGraph getGraph() {
+    EntryGraph graph = this.graph;
+    if (graph == null) {
+      LanguageFile file = snapshot.getLookup(language);
+      if (file == null) return null;
+      this.graph = graph = file.getGraph();
+    }
+    return graph;
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param id The lower-cased id of the entry. If the Template is not an entry, null.
+   * @param template The Template to render.
+   */
+  private void push(String id, Template template) {
+    if (size == frames.length) {
+      frames = Arrays.copyOf(frames, Math.min(size * 2, MAX_DEPTH + 1));
+    }
+    frames[size++] = new Frame(id, template);
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @return Returns the rendered innermost frame, which is removed. If the frame is an entry, its
+   *     color codes are translated.
+   */
+  private String pop() {
+    Frame frame = frames[--size];
+    frames[size] = null;
+    String value = frame.builder.toString();
+    if (frame.id == null) return value;
+    if (metrics != null) metrics.exitRender();
+    return translate(value);
+  }
+
+  /**
+   * @param value The String to translate.
+   * @return Returns the String with its '&' color codes translated.
+   */
+  static String translate(String value) {
+    return ChatColor.translateAlternateColorCodes('&', value);
+  }
+
+  /** Frame is a Template being rendered, and how far it has been rendered. */
+  private static final class Frame {
+
+    private final String id;
+    private final Template.Node[] nodes;
+    private final StringBuilder builder;
+    private final String[] memo;
+    private int index;
+
+    /** The placeholder waiting for the entry in the frame above to render. */
+    private Template.Placeholder pending;
+
+    Frame(String id, Template template) {
+      this.id = id;
+      this.nodes = template.getNodes();
+      this.builder = new StringBuilder(template.getRaw().length() + 16);
+      this.memo = template.createMemo();
+    }
+  }
+}
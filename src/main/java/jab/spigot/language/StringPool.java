@@ -2,22 +2,30 @@ package jab.spigot.language;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * TODO: Document.
+ * StringPool holds the Strings of a pooled entry. Each time the entry is requested, the pool is
+ * rolled for one of its Strings, as defined by its PoolType.
+ *
+ * <p>Rolling a pool is thread-safe and does not lock. Sequential pools advance their index with a
+ * compare-and-set, so every roll from any thread receives the next String in order. Random pools
+ * use the calling thread's generator, so threads do not contend on a shared seed.
  *
  * @author Josh
  */
 public class StringPool {
 
-  private String[] strings;
+  private volatile Template[] templates;
   private PoolType type;
 
-  private int index;
+  private final AtomicInteger index;
 
   public StringPool(@NotNull PoolType type) {
-    strings = new String[0];
+    templates = new Template[0];
     this.type = type;
-    this.index = 0;
+    this.index = new AtomicInteger();
   }
 
   @Override
@@ -26,53 +34,88 @@ public class StringPool {
   }
 
   public String roll() {
+    Template template = rollTemplate();
+    return template != null ? template.getRaw() : null;
+  }
+
+  /**
+   * Rolls the pool, returning the compiled form of the selected String.
+   *
+   * @return Returns the Template selected. If the pool is empty, null is returned.
+   */
+  public Template rollTemplate() {
+    Template[] templates = this.templates;
     // No need to try calculating an empty string pool.
-    String returned = null;
-    if (!isEmpty()) {
+    Template returned = null;
+    if (templates.length != 0) {
       if (type == PoolType.RANDOM) {
-        returned = strings[LanguagePackage.random.nextInt(strings.length)];
+        returned = templates[ThreadLocalRandom.current().nextInt(templates.length)];
       } else if (type == PoolType.SEQUENTIAL) {
-        returned = strings[index];
-        if (index == strings.length - 1) {
-          index = 0;
-        } else {
-          index++;
-        }
+        returned = templates[advance(templates.length, false)];
       } else if (type == PoolType.SEQUENTIAL_REVERSED) {
-        returned = strings[index];
-        if (index == 0) {
-          index = strings.length - 1;
-        } else {
-          index--;
-        }
+        returned = templates[advance(templates.length, true)];
       }
     }
     return returned;
   }
 
-  private boolean isEmpty() {
-    return strings.length == 0;
+  /**
+   * Advances the index of a sequential pool.
+   *
+   * @param length The length of the pool.
+   * @param reversed Set to true to advance the index backwards.
+   * @return Returns the index before it was advanced.
+   */
+  private int advance(int length, boolean reversed) {
+    while (true) {
+      int read = index.get();
+      // The pool can shrink between reading the array and reading the index.
+      int current = read < length ? read : reversed ? length - 1 : 0;
+      int next;
+      if (reversed) {
+        next = current == 0 ? length - 1 : current - 1;
+      } else {
+        next = current == length - 1 ? 0 : current + 1;
+      }
+      if (index.compareAndSet(read, next)) {
+        return current;
+      }
+    }
   }
 
   public void add(@NotNull String string) {
-    if (strings.length == 0) {
-      strings = new String[] {string};
+    add(Template.compile(string));
+  }
+
+  /**
+   * Adds a compiled String to the pool.
+   *
+   * @param template The Template to add.
+   */
+  synchronized void add(@NotNull Template template) {
+    if (templates.length == 0) {
+      templates = new Template[] {template};
       return;
     }
-    String[] newStrings = new String[strings.length + 1];
-    System.arraycopy(strings, 0, newStrings, 0, strings.length);
-    newStrings[strings.length] = string;
-    strings = newStrings;
+    Template[] newTemplates = new Template[templates.length + 1];
+    System.arraycopy(templates, 0, newTemplates, 0, templates.length);
+    newTemplates[templates.length] = template;
+    templates = newTemplates;
     if (type == PoolType.SEQUENTIAL_REVERSED) {
-      index = strings.length - 1;
+      index.set(newTemplates.length - 1);
     } else {
-      index = 0;
+      index.set(0);
     }
   }
 
-  public void clear() {
-    strings = new String[0];
-    index = 0;
+  public synchronized void clear() {
+    templates = new Template[0];
+    index.set(0);
+  }
+
+  /** @return Returns the compiled Strings of the pool, in order. */
+  Template[] getTemplates() {
+    return this.templates;
   }
 
   public PoolType getType() {
@@ -0,0 +1,609 @@
+package jab.spigot.language;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Template is the compiled, immutable form of a String entry. The raw String is scanned once for
+ * '{{...}}' blocks and stored as a series of literal, placeholder and conditional nodes, so that
+ * rendering only needs to walk the nodes instead of re-parsing the String every time.
+ *
+ * <p>The output of {@link #render(LanguagePackage, Language, EntryField...)} is identical to the
+ * output of {@link LanguagePackage#processString(String, LanguagePackage, Language,
+ * EntryField...)} for the same raw String.
+ *
+ * @author Jab
+ */
+public final class Template {
+
+  /** The Template for an empty String. */
+  public static final Template EMPTY = new Template("", "", new Node[0], 0, false);
+
+  /** The raw, uncompiled String. */
+  private final String raw;
+
+  /** The rendered String if the Template is static, otherwise null. */
+  private final String text;
+
+  /** The compiled nodes, in the order that they appear in the raw String. */
+  private final Node[] nodes;
+
+  /** The amount of distinct keys that are looked up by the nodes. */
+  private final int slots;
+
+  /**
+   * Set to true if a key is looked up more than once. The first result for a key is re-used for
+   * the remainder of a render, the same way that processString caches its results.
+   */
+  private final boolean memoized;
+
+  /**
+   * (Private Constructor)
+   *
+   * @param raw The raw, uncompiled String.
+   * @param text The rendered String if the Template is static, otherwise null.
+   * @param nodes The compiled nodes.
+   * @param slots The amount of distinct keys that are looked up by the nodes.
+   * @param memoized Set to true if a key is looked up more than once.
+   */
+  private Template(String raw, String text, Node[] nodes, int slots, boolean memoized) {
+    this.raw = raw;
+    this.text = text;
+    this.nodes = nodes;
+    this.slots = slots;
+    this.memoized = memoized;
+  }
+
+  @Override
+  public String toString() {
+    return this.raw;
+  }
+
+  /**
+   * Renders the Template.
+   *
+   * @param languagePackage The LanguagePackage library to reference for any keys not defined as
+   *     EntryFields. If null, only the EntryFields are used.
+   * @param language The Language to use primarily.
+   * @param entries The EntryField Array to add to or override the LanguagePackage library.
+   * @return Returns the rendered String.
+   */
+  @NotNull
+  public String render(
+      LanguagePackage languagePackage, Language language, EntryField... entries) {
+    return render(languagePackage, language, FieldSet.of(entries));
+  }
+
+  /**
+   * Renders the Template.
+   *
+   * @param languagePackage The LanguagePackage library to reference for any keys not defined as
+   *     EntryFields. If null, only the EntryFields are used.
+   * @param language The Language to use primarily.
+   * @param fields The EntryFields to add to or override the LanguagePackage library.
+   * @return Returns the rendered String.
+   */
+  @NotNull
+  public String render(LanguagePackage languagePackage, Language language, FieldSet fields) {
+    PackSnapshot snapshot =
+        languagePackage != null ? languagePackage.getSnapshot(language) : null;
+    return render(snapshot, language, fields != null ? fields : FieldSet.EMPTY);
+  }
+
+  /**
+   * Renders the Template against a snapshot of a LanguagePackage.
+   *
+   * @param snapshot The snapshot to reference for any keys not defined as EntryFields. If null,
+   *     only the EntryFields are used.
+   * @param language The Language to use primarily.
+   * @param fields The EntryFields to add to or override the LanguagePackage library.
+   * @return Returns the rendered String.
+   */
+  @NotNull
+  String render(PackSnapshot snapshot, Language language, @NotNull FieldSet fields) {
+    if (text != null) {
+      return text;
+    }
+    if (snapshot != null) {
+      return new Resolver(snapshot, language, fields).render(this);
+    }
+    // With no LanguagePackage to look up in, every block resolves from the EntryFields alone.
+    String[] memo = createMemo();
+    StringBuilder builder = new StringBuilder(raw.length() + 16);
+    for (Node node : nodes) {
+      node.append(builder, null, fields, memo);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Renders the Template with the value of each key given up front. The result is the same as a
+   * render with no EntryFields, where each key resolves to the value given.
+   *
+   * @param values The function returning the value of each key. If a key is not defined, the
+   *     function returns null.
+   * @return Returns the rendered String. If the Template has conditions, null is returned.
+   */
+  String fold(@NotNull Function<EntryKey, String> values) {
+    if (text != null) {
+      return text;
+    }
+    StringBuilder builder = new StringBuilder(raw.length() + 16);
+    for (Node node : nodes) {
+      if (node instanceof Literal) {
+        builder.append(((Literal) node).text);
+      } else if (node instanceof Placeholder) {
+        EntryKey key = ((Placeholder) node).key;
+        String value = values.apply(key);
+        builder.append(value != null ? value : key.getKey());
+      } else {
+        return null;
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Collects the keys that rendering the Template can look up in the LanguagePackage.
+   *
+   * @param keys The Collection to add the keys to.
+   */
+  void collectKeys(@NotNull Collection<EntryKey> keys) {
+    for (Node node : nodes) {
+      node.collectKeys(keys);
+    }
+  }
+
+  /**
+   * @return Returns true if the Template contains no placeholders or conditions, and always renders
+   *     as the raw String.
+   */
+  public boolean isStatic() {
+    return text != null;
+  }
+
+  /** @return Returns the raw, uncompiled String. */
+  @NotNull
+  public String getRaw() {
+    return this.raw;
+  }
+
+  /** @return Returns the rendered String if the Template is static, otherwise null. */
+  String getText() {
+    return this.text;
+  }
+
+  /** @return Returns the compiled nodes, in the order that they appear in the raw String. */
+  @NotNull
+  Node[] getNodes() {
+    return this.nodes;
+  }
+
+  /**
+   * Replaces the raw String, the static text and the literal text of the Template with shared
+   * instances.
+   *
+   * @param strings The function returning the shared instance of each String.
+   * @return Returns the Template holding the shared Strings. If every String is shared already,
+   *     the Template itself is returned.
+   */
+  @NotNull
+  Template intern(@NotNull Function<String, String> strings) {
+    String raw = strings.apply(this.raw);
+    // A static Template holds its raw String as its text and literal, so it is only shared once.
+    String text = this.text == this.raw ? raw : this.text != null ? strings.apply(this.text) : null;
+    Node[] nodes = this.nodes;
+    for (int index = 0; index < nodes.length; index++) {
+      if (!(nodes[index] instanceof Literal)) continue;
+      String literal = ((Literal) nodes[index]).text;
+      String shared =
+          literal == this.raw ? raw : literal == this.text ? text : strings.apply(literal);
+      if (shared != literal) {
+        if (nodes == this.nodes) nodes = nodes.clone();
+        nodes[index] = new Literal(shared);
+      }
+    }
+    if (raw == this.raw && text == this.text && nodes == this.nodes) return this;
+    return new Template(raw, text, nodes, slots, memoized);
+  }
+
+  /**
+   * @return Returns the estimated bytes held by the Template, its nodes and its Strings. The keys
+   *     and conditions of blocks are not counted.
+   */
+  long getSize() {
+    // The Template, then its Array of nodes, padded to 8 bytes.
+    long size = 32 + ((16 + 4L * nodes.length + 7) & ~7L);
+    size += InternTable.sizeOf(raw);
+    if (text != null && text != raw) size += InternTable.sizeOf(text);
+    for (Node node : nodes) {
+      if (node instanceof Literal) {
+        String literal = ((Literal) node).text;
+        size += 16;
+        if (literal != raw && literal != text) size += InternTable.sizeOf(literal);
+      } else {
+        size += 24;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * @return Returns a new Array to hold the results resolved during a render. If no key is looked
+   *     up more than once, null is returned.
+   */
+  String[] createMemo() {
+    return memoized ? new String[slots] : null;
+  }
+
+  /**
+   * Compiles a String into a Template.
+   *
+   * @param raw The String to compile.
+   * @return Returns the compiled Template.
+   */
+  @NotNull
+  public static Template compile(@NotNull String raw) {
+    int index = raw.indexOf("{{");
+    if (index == -1) {
+      if (raw.isEmpty()) {
+        return EMPTY;
+      }
+      return new Template(raw, raw, new Node[] {new Literal(raw)}, 0, false);
+    }
+    Compiler compiler = new Compiler();
+    int start = 0;
+    while (index != -1) {
+      int end = raw.indexOf("}}", index + 2);
+      if (index > start) {
+        compiler.literal(raw.substring(start, index));
+      }
+      // An unterminated block is dropped from the result entirely.
+      if (end == -1) {
+        start = raw.length();
+        break;
+      }
+      compiler.block(raw.substring(index + 2, end));
+      start = end + 2;
+      index = raw.indexOf("{{", start);
+    }
+    if (start < raw.length()) {
+      compiler.literal(raw.substring(start));
+    }
+    return compiler.build(raw);
+  }
+
+  /**
+   * Writes the compiled Template, so that it can be read without being compiled again.
+   *
+   * @param out The output to write to.
+   * @param strings The function assigning each String an index in the string table.
+   * @throws IOException Thrown if the output fails to write.
+   */
+  void write(@NotNull DataOutput out, @NotNull ToIntFunction<String> strings) throws IOException {
+    out.writeInt(strings.applyAsInt(raw));
+    if (text != null) {
+      out.writeByte(0);
+      out.writeInt(strings.applyAsInt(text));
+      return;
+    }
+    out.writeByte(1);
+    out.writeInt(nodes.length);
+    for (Node node : nodes) {
+      node.write(out, strings);
+    }
+  }
+
+  /**
+   * Reads a Template written with {@link #write(DataOutput, ToIntFunction)}.
+   *
+   * @param buffer The buffer to read from.
+   * @param strings The string table.
+   * @return Returns the Template read.
+   */
+  @NotNull
+  static Template read(@NotNull ByteBuffer buffer, @NotNull String[] strings) {
+    String raw = strings[buffer.getInt()];
+    if (buffer.get() == 0) {
+      String text = strings[buffer.getInt()];
+      return new Template(raw, text, new Node[] {new Literal(text)}, 0, false);
+    }
+    Compiler compiler = new Compiler();
+    int count = buffer.getInt();
+    for (int index = 0; index < count; index++) {
+      byte type = buffer.get();
+      if (type == Literal.TYPE) {
+        compiler.literal(strings[buffer.getInt()]);
+      } else if (type == Placeholder.TYPE) {
+        compiler.nodes.add(compiler.placeholder(strings[buffer.getInt()]));
+      } else if (type == Conditional.TYPE) {
+        String condition = strings[buffer.getInt()];
+        String whenTrue = strings[buffer.getInt()];
+        int whenFalse = buffer.getInt();
+        if (whenFalse == Conditional.SAME) {
+          compiler.conditional(condition, whenTrue);
+        } else {
+          String key = whenFalse == Conditional.NONE ? null : strings[whenFalse];
+          compiler.conditional(condition, whenTrue, key);
+        }
+      } else {
+        throw new IllegalStateException("Unknown node type: " + type);
+      }
+    }
+    return compiler.build(raw);
+  }
+
+  /** Node is a compiled section of a Template. */
+  abstract static class Node {
+
+    /**
+     * Appends the rendered node. A key that is not defined as an EntryField is not looked up by the
+     * node, but handed back to the Resolver, which renders the entry and completes the node.
+     *
+     * @param builder The builder to append to.
+     * @param resolver The Resolver to look up entries with. (Can be null)
+     * @param fields The EntryFields to add to or override the LanguagePackage library.
+     * @param memo The results resolved so far during the render. (Can be null)
+     * @return Returns the Placeholder to complete with an entry of the LanguagePackage. If the node
+     *     is complete, null is returned.
+     */
+    abstract Placeholder append(
+        StringBuilder builder, Resolver resolver, FieldSet fields, String[] memo);
+
+    /**
+     * Collects the keys that the node can look up in the LanguagePackage.
+     *
+     * @param keys The Collection to add the keys to.
+     */
+    void collectKeys(Collection<EntryKey> keys) {}
+
+    /**
+     * Writes the node.
+     *
+     * @param out The output to write to.
+     * @param strings The function assigning each String an index in the string table.
+     * @throws IOException Thrown if the output fails to write.
+     */
+    abstract void write(DataOutput out, ToIntFunction<String> strings) throws IOException;
+  }
+
+  /** Literal is a section of text that is appended as-is. */
+  private static final class Literal extends Node {
+
+    static final byte TYPE = 0;
+
+    private final String text;
+
+    Literal(String text) {
+      this.text = text;
+    }
+
+    @Override
+    Placeholder append(
+        StringBuilder builder, Resolver resolver, FieldSet fields, String[] memo) {
+      builder.append(text);
+      return null;
+    }
+
+    @Override
+    void write(DataOutput out, ToIntFunction<String> strings) throws IOException {
+      out.writeByte(TYPE);
+      out.writeInt(strings.applyAsInt(text));
+    }
+  }
+
+  /**
+   * Placeholder is a '{{key}}' block. If the key cannot be resolved, the key itself is appended.
+   */
+  static final class Placeholder extends Node {
+
+    static final byte TYPE = 1;
+
+    private final EntryKey key;
+    private final int slot;
+
+    Placeholder(String key, int slot) {
+      this.key = EntryKey.of(key);
+      this.slot = slot;
+    }
+
+    @Override
+    Placeholder append(
+        StringBuilder builder, Resolver resolver, FieldSet fields, String[] memo) {
+      if (memo != null && memo[slot] != null) {
+        builder.append(memo[slot]);
+        return null;
+      }
+      EntryField field = fields.get(key.getKey());
+      if (field != null) {
+        complete(builder, field.getValue().toString(), memo);
+        return null;
+      }
+      if (resolver != null) {
+        return this;
+      }
+      builder.append(key.getKey());
+      return null;
+    }
+
+    /**
+     * Completes the placeholder with the value resolved for its key.
+     *
+     * @param builder The builder to append to.
+     * @param value The value resolved. If null, the key itself is appended.
+     * @param memo The results resolved so far during the render. (Can be null)
+     */
+    void complete(StringBuilder builder, String value, String[] memo) {
+      if (value == null) {
+        builder.append(key.getKey());
+        return;
+      }
+      builder.append(value);
+      if (memo != null) memo[slot] = value;
+    }
+
+    /** @return Returns the pre-resolved key of the placeholder. */
+    EntryKey getKey() {
+      return this.key;
+    }
+
+    @Override
+    void collectKeys(Collection<EntryKey> keys) {
+      keys.add(key);
+    }
+
+    @Override
+    void write(DataOutput out, ToIntFunction<String> strings) throws IOException {
+      out.writeByte(TYPE);
+      out.writeInt(strings.applyAsInt(key.getKey()));
+    }
+  }
+
+  /**
+   * Conditional is a '{{if:condition:key}}' or '{{if:condition:key:else_key}}' block. If the
+   * condition cannot be calculated, the entire block is skipped.
+   */
+  private static final class Conditional extends Node {
+
+    static final byte TYPE = 2;
+
+    /** Written in place of the else key when nothing is appended if the condition fails. */
+    static final int NONE = -1;
+
+    /** Written in place of the else key when the placeholder is the same for both results. */
+    static final int SAME = -2;
+
+    private final String source;
+    private final Condition condition;
+    private final Placeholder whenTrue;
+    private final Placeholder whenFalse;
+
+    /**
+     * @param source The condition, as written in the block.
+     * @param whenTrue The placeholder to append if the condition passes.
+     * @param whenFalse The placeholder to append if the condition fails. If null, nothing is
+     *     appended.
+     */
+    Conditional(String source, Placeholder whenTrue, Placeholder whenFalse) {
+      this.source = source;
+      this.condition = Condition.compile(source);
+      this.whenTrue = whenTrue;
+      this.whenFalse = whenFalse;
+    }
+
+    @Override
+    Placeholder append(
+        StringBuilder builder, Resolver resolver, FieldSet fields, String[] memo) {
+      Boolean result = condition.calculate(resolver, fields);
+      // If no variable is found, the entire if block is skipped.
+      if (result == null) {
+        return null;
+      }
+      Placeholder placeholder = result ? whenTrue : whenFalse;
+      return placeholder != null ? placeholder.append(builder, resolver, fields, memo) : null;
+    }
+
+    @Override
+    void collectKeys(Collection<EntryKey> keys) {
+      condition.collectKeys(keys);
+      whenTrue.collectKeys(keys);
+      if (whenFalse != null) whenFalse.collectKeys(keys);
+    }
+
+    @Override
+    void write(DataOutput out, ToIntFunction<String> strings) throws IOException {
+      out.writeByte(TYPE);
+      out.writeInt(strings.applyAsInt(source));
+      out.writeInt(strings.applyAsInt(whenTrue.key.getKey()));
+      if (whenFalse == null) {
+        out.writeInt(NONE);
+      } else if (whenFalse == whenTrue) {
+        out.writeInt(SAME);
+      } else {
+        out.writeInt(strings.applyAsInt(whenFalse.key.getKey()));
+      }
+    }
+  }
+
+  /** Compiler collects the nodes of a Template while the raw String is scanned. */
+  private static final class Compiler {
+
+    private final List<Node> nodes = new ArrayList<>();
+    private final Map<String, Integer> mapSlots = new HashMap<>();
+    private boolean memoized;
+
+    void literal(String text) {
+      nodes.add(new Literal(text));
+    }
+
+    void block(String key) {
+      key = key.trim();
+      if (key.startsWith("if")) {
+        String[] split = key.split(":");
+        if (split.length >= 3) {
+          // IF : BOOLEAN : ACTION : ELSE_ACTION
+          if (split.length == 4) {
+            conditional(split[1], split[2], split[3]);
+          }
+          // IF : BOOLEAN : ACTION
+          else if (split.length == 3) {
+            conditional(split[1], split[2], null);
+          }
+          // Too many sections. The block is looked up as-is if the condition can be calculated.
+          else {
+            conditional(split[1], key);
+          }
+          return;
+        }
+      }
+      nodes.add(placeholder(key));
+    }
+
+    void conditional(String condition, String whenTrue, String whenFalse) {
+      Placeholder placeholder = placeholder(whenTrue);
+      nodes.add(
+          new Conditional(
+              condition, placeholder, whenFalse != null ? placeholder(whenFalse) : null));
+    }
+
+    void conditional(String condition, String key) {
+      Placeholder placeholder = placeholder(key);
+      nodes.add(new Conditional(condition, placeholder, placeholder));
+    }
+
+    Placeholder placeholder(String key) {
+      Integer slot = mapSlots.get(key);
+      if (slot == null) {
+        slot = mapSlots.size();
+        mapSlots.put(key, slot);
+      } else {
+        memoized = true;
+      }
+      return new Placeholder(key, slot);
+    }
+
+    Template build(String raw) {
+      // A Template with no blocks is static, regardless of how the raw String was split.
+      if (mapSlots.isEmpty()) {
+        int length = 0;
+        for (Node node : nodes) length += ((Literal) node).text.length();
+        StringBuilder builder = new StringBuilder(length);
+        for (Node node : nodes) builder.append(((Literal) node).text);
+        // Unterminated blocks are removed, so the static text can differ from the raw String.
+        String text = builder.toString();
+        return new Template(raw, text, new Node[] {new Literal(text)}, 0, false);
+      }
+      return new Template(raw, null, nodes.toArray(new Node[0]), mapSlots.size(), memoized);
+    }
+  }
+}
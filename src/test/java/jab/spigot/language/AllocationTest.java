@@ -0,0 +1,163 @@
+package jab.spigot.language;
+
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Tests that each kind of render allocates no more than its budget, in bytes per render on the
+ * current thread. It guards the render path against regressions in GC pressure.
+ *
+ * <p>Each case is warmed up first, so that the JIT has compiled the render path and removed the
+ * allocations that escape analysis can remove. The budgets have headroom over what the renders
+ * allocate at the time of writing, so that only a real regression fails. The budget of a case can
+ * be set with the system property 'allocation.&lt;case&gt;', e.g. '-Dallocation.nested=512'.
+ *
+ * <p>Allocated bytes are read from {@link com.sun.management.ThreadMXBean}, which HotSpot JVMs
+ * support. On other JVMs, the tests are skipped.
+ *
+ * @author Jab
+ */
+public class AllocationTest {
+
+  /** The renders of each case before it is measured. */
+  private static final int WARMUP = 200_000;
+
+  /** The renders of each case that are measured. */
+  private static final int RENDERS = 100_000;
+
+  private static final EntryField[] ENTRIES = {
+    new EntryField("player", "Jab"), new EntryField("amount", 3), new EntryField("vip", true)
+  };
+
+  private static File directory;
+  private static LanguagePackage languagePackage;
+
+  private com.sun.management.ThreadMXBean threads;
+
+  @BeforeClass
+  public static void createPackage() throws IOException {
+    directory = Files.createTempDirectory("lp-alloc").toFile();
+    YamlConfiguration config = new YamlConfiguration();
+    config.set("static", "&aWelcome to the server!");
+    config.set("nested", "&7{{greeting}}, {{player}}! {{balance}}");
+    config.set("greeting", "&eHello");
+    config.set("balance", "You have &6{{amount}} &7coins{{suffix}}");
+    config.set("suffix", ".");
+    config.set("conditional", "{{if:vip:vip_suffix:suffix}} {{player}} {{if:amount == 3:suffix}}");
+    config.set("vip_suffix", " &6[VIP]");
+    config.set("pooled.type", "SEQUENTIAL");
+    config.set("pooled.pool", Arrays.asList("&aTip: {{player}}", "&bTip: {{amount}}", "&cTip"));
+    config.set("clickable", "&7Click [@command:/help {{player}}:&a&lhere] for page {{amount}}.");
+    config.save(new File(directory, "alloc_" + Language.English.getAbbreviation() + ".yml"));
+    languagePackage = new LanguagePackage(directory, "alloc");
+    languagePackage.load();
+  }
+
+  @AfterClass
+  public static void deletePackage() {
+    File[] files = directory.listFiles();
+    if (files != null) {
+      for (File file : files) file.delete();
+    }
+    directory.delete();
+  }
+
+  @Before
+  public void enableAllocatedMemory() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(
+        "Allocated bytes cannot be measured on this JVM.",
+        bean instanceof com.sun.management.ThreadMXBean
+            && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported());
+    threads = (com.sun.management.ThreadMXBean) bean;
+    threads.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  @Test
+  public void staticEntry() {
+    assertWithin(
+        "static", 160, () -> languagePackage.getString("static", Language.English, ENTRIES));
+  }
+
+  @Test
+  public void nestedEntry() {
+    FieldSet fields = FieldSet.of(ENTRIES);
+    EntryKey nested = EntryKey.of("nested");
+    assertWithin(
+        "nested", 1280, () -> languagePackage.getString(nested, Language.English, fields));
+  }
+
+  @Test
+  public void conditionalEntry() {
+    assertWithin(
+        "conditional",
+        768,
+        () -> languagePackage.getString("conditional", Language.English, ENTRIES));
+  }
+
+  @Test
+  public void pooledEntry() {
+    assertWithin(
+        "pooled", 512, () -> languagePackage.getString("pooled", Language.English, ENTRIES));
+  }
+
+  @Test
+  public void clickableEntry() {
+    assertWithin(
+        "clickable",
+        1792,
+        () -> languagePackage.getTexts("clickable", Language.English, ENTRIES));
+  }
+
+  @Test
+  public void processString() {
+    String raw = "&7Hello {{player}}, you have {{amount}} {{if:vip:vip_suffix}}.";
+    assertWithin(
+        "process",
+        2560,
+        () -> LanguagePackage.processString(raw, languagePackage, Language.English, ENTRIES));
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Warms up a render, then asserts that it allocates no more than its budget.
+   *
+   * @param name The name of the case.
+   * @param budget The default budget, in bytes per render.
+   * @param render The render to measure.
+   */
+  private void assertWithin(String name, long budget, Supplier<Object> render) {
+    budget = Long.getLong("allocation." + name, budget);
+    // Touch the result, so that the render cannot be removed as dead code.
+    int sink = 0;
+    for (int index = 0; index < WARMUP; index++) {
+      sink += render.get() != null ? 1 : 0;
+    }
+    long id = Thread.currentThread().getId();
+    long start = threads.getThreadAllocatedBytes(id);
+    for (int index = 0; index < RENDERS; index++) {
+      sink += render.get() != null ? 1 : 0;
+    }
+    long bytes = (threads.getThreadAllocatedBytes(id) - start) / RENDERS;
+    assertEquals("Case '" + name + "' rendered null.", WARMUP + RENDERS, sink);
+    assertTrue(
+        "Case '" + name + "' allocates " + bytes + " bytes per render, over its budget: " + budget,
+        bytes <= budget);
+  }
+}
@@ -0,0 +1,67 @@
+package jab.spigot.language;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests that client locales resolve to the Language with the longest matching abbreviation.
+ *
+ * @author Jab
+ */
+public class LanguageTest {
+
+  private static Language portuguese;
+  private static Language brazilian;
+
+  @BeforeClass
+  public static void registerLanguages() {
+    portuguese = register("Portuguese", "pt");
+    brazilian = register("Brazilian", "pt_br");
+  }
+
+  @Test
+  public void longerAbbreviationResolvesFirst() {
+    assertSame(brazilian, Language.getLanguageWithLocale("pt_br"));
+    assertSame(brazilian, Language.getLanguageWithLocale("PT_BR"));
+  }
+
+  @Test
+  public void localeFallsBackToShorterAbbreviation() {
+    assertSame(portuguese, Language.getLanguageWithLocale("pt_pt"));
+    assertSame(portuguese, Language.getLanguageWithLocale("pt"));
+    assertSame(brazilian, Language.getLanguageWithLocale("pt_br_x"));
+  }
+
+  @Test
+  public void englishLocaleResolves() {
+    assertSame(Language.English, Language.getLanguageWithLocale("en_us"));
+  }
+
+  @Test
+  public void unknownLocaleResolvesNull() {
+    assertNull(Language.getLanguageWithLocale("zz_zz"));
+    assertNull(Language.getLanguageWithLocale("_"));
+    assertNull(Language.getLanguageWithLocale(""));
+  }
+
+  @Test
+  public void languageFileNamedWithLongerAbbreviation() {
+    assertSame(brazilian, DirectoryIndex.getLanguage("pack_pt_br.yml", "pack"));
+    assertSame(portuguese, DirectoryIndex.getLanguage("pack_pt.yml", "pack"));
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param name The name of the Language.
+   * @param abbreviation The abbreviation of the Language.
+   * @return Returns the registered Language, registering it if another test has not already.
+   */
+  private static Language register(String name, String abbreviation) {
+    Language language = Language.getLanguageWithAbbreviation(abbreviation);
+    return language != null ? language : Language.register(name, abbreviation);
+  }
+}
@@ -0,0 +1,119 @@
+package jab.spigot.language;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests that sequential StringPools stay fair when they are rolled from many threads at once.
+ *
+ * @author Jab
+ */
+public class StringPoolTest {
+
+  private static final int THREADS = 8;
+  private static final int ROLLS = 70_000;
+  private static final int STRINGS = 7;
+
+  @Test
+  public void sequentialIsFairUnderContention() throws Exception {
+    assertFair(PoolType.SEQUENTIAL);
+  }
+
+  @Test
+  public void sequentialReversedIsFairUnderContention() throws Exception {
+    assertFair(PoolType.SEQUENTIAL_REVERSED);
+  }
+
+  @Test
+  public void sequentialRollsInOrder() {
+    StringPool pool = createPool(PoolType.SEQUENTIAL);
+    for (int index = 0; index < STRINGS * 2; index++) {
+      assertEquals("string" + (index % STRINGS), pool.roll());
+    }
+  }
+
+  @Test
+  public void sequentialReversedRollsInOrder() {
+    StringPool pool = createPool(PoolType.SEQUENTIAL_REVERSED);
+    for (int index = 0; index < STRINGS * 2; index++) {
+      assertEquals("string" + (STRINGS - 1 - index % STRINGS), pool.roll());
+    }
+  }
+
+  @Test
+  public void emptyPoolRollsNull() {
+    assertNull(new StringPool(PoolType.SEQUENTIAL).roll());
+  }
+
+  /**
+   * (Private Method)
+   *
+   * <p>Rolls a pool from every thread at once, and asserts that each String is rolled the same
+   * amount of times.
+   *
+   * @param type The PoolType to test.
+   */
+  private static void assertFair(PoolType type) throws Exception {
+    StringPool pool = createPool(type);
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<Map<String, Integer>>> futures = new ArrayList<>();
+      for (int thread = 0; thread < THREADS; thread++) {
+        Callable<Map<String, Integer>> task =
+            () -> {
+              Map<String, Integer> counts = new HashMap<>();
+              start.await();
+              for (int roll = 0; roll < ROLLS; roll++) {
+                counts.merge(pool.roll(), 1, Integer::sum);
+              }
+              return counts;
+            };
+        futures.add(executor.submit(task));
+      }
+      start.countDown();
+      Map<String, Integer> counts = new HashMap<>();
+      for (Future<Map<String, Integer>> future : futures) {
+        for (Map.Entry<String, Integer> entry : future.get(60, TimeUnit.SECONDS).entrySet()) {
+          counts.merge(entry.getKey(), entry.getValue(), Integer::sum);
+        }
+      }
+      assertEquals(STRINGS, counts.size());
+      for (int index = 0; index < STRINGS; index++) {
+        assertEquals(
+            type + " rolls of 'string" + index + "'",
+            THREADS * ROLLS / STRINGS,
+            (int) counts.getOrDefault("string" + index, 0));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * (Private Method)
+   *
+   * @param type The PoolType of the pool.
+   * @return Returns a pool of Strings named 'string0' to 'string6', in order.
+   */
+  private static StringPool createPool(PoolType type) {
+    StringPool pool = new StringPool(type);
+    for (int index = 0; index < STRINGS; index++) {
+      pool.add("string" + index);
+    }
+    return pool;
+  }
+}